@@ -24,8 +24,13 @@ import java.io.IOException;
 import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -35,14 +40,18 @@ import org.apache.maven.doxia.linkcheck.model.LinkcheckFile;
 import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
 import org.apache.maven.doxia.linkcheck.model.LinkcheckModel;
 import org.apache.maven.doxia.linkcheck.model.io.xpp3.LinkcheckModelXpp3Writer;
+import org.apache.maven.doxia.linkcheck.validation.ConnectionPoolStatistics;
 import org.apache.maven.doxia.linkcheck.validation.FileLinkValidator;
 import org.apache.maven.doxia.linkcheck.validation.HTTPLinkValidationResult;
+import org.apache.maven.doxia.linkcheck.validation.HostMetrics;
 import org.apache.maven.doxia.linkcheck.validation.LinkValidationItem;
 import org.apache.maven.doxia.linkcheck.validation.LinkValidationResult;
 import org.apache.maven.doxia.linkcheck.validation.LinkValidatorManager;
 import org.apache.maven.doxia.linkcheck.validation.MailtoLinkValidator;
 import org.apache.maven.doxia.linkcheck.validation.OfflineHTTPLinkValidator;
 import org.apache.maven.doxia.linkcheck.validation.OnlineHTTPLinkValidator;
+import org.apache.maven.doxia.linkcheck.validation.ValidationStatistics;
+import org.apache.maven.doxia.linkcheck.validation.ValidatorMetrics;
 
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.util.FileUtils;
@@ -50,6 +59,8 @@ import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.StringUtils;
 import org.codehaus.plexus.util.WriterFactory;
+import org.codehaus.plexus.util.xml.PrettyPrintXMLWriter;
+import org.codehaus.plexus.util.xml.XMLWriter;
 
 /**
  * The main bean to be called whenever a set of documents should have their links checked.
@@ -69,12 +80,39 @@ public final class DefaultLinkCheck
     /** One MegaByte. */
     private static final long MEG = 1024 * 1024;
 
+    /** The number of slowest hosts logged. */
+    private static final int SLOWEST_HOSTS = 5;
+
     /** The basedir to check. */
     private File basedir;
 
     /** Linkcheck Cache. */
     private File linkCheckCache;
 
+    /** Whether cached results are revalidated. */
+    private boolean revalidateCache;
+
+    /** The time to live of cached results which are not errors, negative for ever. */
+    private long cacheSuccessTtl = -1;
+
+    /** The time to live of cached errors, zero or negative to keep them for the current run only. */
+    private long cacheFailureTtl = -1;
+
+    /** The time to live of cached results per host. */
+    private Map<String, Long> cacheHostTtls;
+
+    /** The maximum number of expired results refreshed per run. */
+    private int cacheRevalidationBudget = 50;
+
+    /** Whether the cached results are kept off-heap. */
+    private boolean offHeapCache;
+
+    /** The maximum number of results of local files kept in memory. */
+    private int maxLocalResults = LinkValidatorManager.DEFAULT_MAX_LOCAL_RESULTS;
+
+    /** The maximum number of other results kept in memory but not stored in the cache file. */
+    private int maxRemoteResults = LinkValidatorManager.DEFAULT_MAX_REMOTE_RESULTS;
+
     /**
      * To exclude some links. Could contains a link, i.e. <code>http:&#47;&#47;maven.apache.org</code>,
      * or pattern links i.e. <code>http:&#47;&#47;maven.apache.org&#47;**&#47;*.html</code>
@@ -101,6 +139,18 @@ public final class DefaultLinkCheck
     /** Online mode. */
     private boolean online;
 
+    /** Whether the external links are validated grouped by host. */
+    private boolean hostBatching;
+
+    /** Whether the most referenced external links are validated first. */
+    private boolean popularityOrder;
+
+    /** The time budget in milliseconds of the external links, 0 or less for none. */
+    private long onlineTimeBudget;
+
+    /** The number of errors tolerated before aborting, negative for no limit. */
+    private int errorBudget = -1;
+
     /** Bean enncapsuling some https parameters */
     private HttpBean http;
 
@@ -116,6 +166,9 @@ public final class DefaultLinkCheck
     /** The base URL for links that start with '/'. */
     private String baseURL;
 
+    /** Whether the links to the site itself are checked against the base directory. */
+    private boolean siteLinksLocal;
+
     /** The encoding used to process files, UTF-8 by default. */
     private String encoding = ReaderFactory.UTF_8;
 
@@ -137,6 +190,13 @@ public final class DefaultLinkCheck
         this.baseURL = url;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void setSiteLinksLocal( boolean local )
+    {
+        this.siteLinksLocal = local;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setExcludedHttpStatusErrors( int[] excl )
@@ -179,6 +239,84 @@ public final class DefaultLinkCheck
         this.linkCheckCache = cacheFile;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void setRevalidateCache( boolean revalidate )
+    {
+        this.revalidateCache = revalidate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCacheSuccessTtl( long ttl )
+    {
+        this.cacheSuccessTtl = ttl;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCacheFailureTtl( long ttl )
+    {
+        this.cacheFailureTtl = ttl;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCacheHostTtls( Map<String, Long> ttls )
+    {
+        this.cacheHostTtls = ttls;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCacheRevalidationBudget( int budget )
+    {
+        this.cacheRevalidationBudget = budget;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setOffHeapCache( boolean offHeap )
+    {
+        this.offHeapCache = offHeap;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setMaxTransientResults( int maxLocal, int maxRemote )
+    {
+        this.maxLocalResults = maxLocal;
+        this.maxRemoteResults = maxRemote;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setHostBatching( boolean batching )
+    {
+        this.hostBatching = batching;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setPopularityOrder( boolean popular )
+    {
+        this.popularityOrder = popular;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setOnlineTimeBudget( long budget )
+    {
+        this.onlineTimeBudget = budget;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setErrorBudget( int budget )
+    {
+        this.errorBudget = budget;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setOnline( boolean onLine )
@@ -223,20 +361,15 @@ public final class DefaultLinkCheck
 
         displayMemoryConsumption();
 
+        // the cache is loaded while the pages are scanned
         LinkValidatorManager validator = getLinkValidatorManager();
-        try
-        {
-            validator.loadCache( this.linkCheckCache );
-        }
-        catch ( IOException e )
-        {
-            throw new LinkCheckException( "Could not load cache: " + e.getMessage(), e );
-        }
-
-        displayMemoryConsumption();
+        validator.loadCacheInBackground( this.linkCheckCache );
 
         LOG.info( "Begin to check links in files..." );
 
+        validator.setOnlineDeadline( ( this.onlineTimeBudget > 0 ) ? System.currentTimeMillis()
+                        + this.onlineTimeBudget : -1 );
+        validator.setErrorBudget( this.errorBudget, getExcludedHttpStatusErrors() );
         try
         {
             findAndCheckFiles( this.basedir, model );
@@ -245,9 +378,19 @@ public final class DefaultLinkCheck
         {
             throw new LinkCheckException( "Could not scan base directory: " + basedir.getAbsolutePath(), e );
         }
+        finally
+        {
+            validator.setOnlineDeadline( -1 );
+        }
 
         LOG.info( "Links checked." );
 
+        model.setAbortReason( validator.getAbortReason() );
+
+        model.setHostMetrics( validator.getHostMetrics() );
+        logSlowestHosts( model.getHostMetrics() );
+        model.setValidationStatistics( validator.getValidationStatistics() );
+
         displayMemoryConsumption();
 
         try
@@ -270,6 +413,8 @@ public final class DefaultLinkCheck
 
         displayMemoryConsumption();
 
+        logValidationStatistics( model.getValidationStatistics() );
+
         return model;
     }
 
@@ -307,6 +452,15 @@ public final class DefaultLinkCheck
         return this.online;
     }
 
+    /**
+     * @return <code>true</code> if the requests are rate limited, globally or for some hosts.
+     */
+    private boolean isRateLimited()
+    {
+        return http != null && ( http.getRequestsPerSecond() > 0
+            || ( http.getHostRequestsPerSecond() != null && !http.getHostRequestsPerSecond().isEmpty() ) );
+    }
+
     /**
      * Returns the excluded links.
      * Could contains a link, i.e. <code>http:&#47;&#47;maven.apache.org/</code>,
@@ -397,7 +551,24 @@ public final class DefaultLinkCheck
             this.lvm.setExcludedLinks( getExcludedLinks() );
         }
 
-        this.lvm.addLinkValidator( new FileLinkValidator( encoding ) );
+        this.lvm.setRevalidateCache( this.revalidateCache );
+        this.lvm.setSuccessTtl( this.cacheSuccessTtl );
+        this.lvm.setFailureTtl( this.cacheFailureTtl );
+        this.lvm.setHostTtls( this.cacheHostTtls );
+        this.lvm.setRevalidationBudget( this.cacheRevalidationBudget );
+        this.lvm.setOffHeapCache( this.offHeapCache );
+        this.lvm.setMaxLocalResults( this.maxLocalResults );
+        this.lvm.setMaxRemoteResults( this.maxRemoteResults );
+        this.lvm.setPopularityOrder( this.popularityOrder );
+
+        if ( this.siteLinksLocal )
+        {
+            this.lvm.addLinkValidator( new FileLinkValidator( encoding, basedir, baseURL ) );
+        }
+        else
+        {
+            this.lvm.addLinkValidator( new FileLinkValidator( encoding ) );
+        }
 
         if ( isOnline() )
         {
@@ -421,19 +592,86 @@ public final class DefaultLinkCheck
     /**
      * Recurses through the given base directory and adds/checks
      * files to the model that pass through the current filter.
+     * The pages are checked one at a time. Online, they are scanned beforehand for their distinct external links,
+     * so that the validators can prepare their validation, and the cache is only waited for then.
      *
      * @param base the base directory to traverse.
+     * @throws LinkCheckException if the cache could not be loaded.
      */
     private void findAndCheckFiles( File base, LinkcheckModel model )
-        throws IOException
+        throws IOException, LinkCheckException
     {
-        for ( File file : FileUtils.getFiles( base, getIncludedPages(), getExcludedPages() ) )
+        List<File> files = FileUtils.getFiles( base, getIncludedPages(), getExcludedPages() );
+        LinkValidatorManager validator = getLinkValidatorManager();
+
+        if ( isOnline() )
+        {
+            int scanned = 0;
+            for ( File file : files )
+            {
+                Page page = scanFile( file );
+                if ( page.items != null )
+                {
+                    validator.scheduleLinks( page.items );
+                }
+
+                if ( ( ++scanned % 100 == 0 ) && LOG.isInfoEnabled() )
+                {
+                    LOG.info( "Found " + scanned + " files so far." );
+                }
+            }
+        }
+
+        try
+        {
+            validator.awaitCacheLoaded();
+        }
+        catch ( IOException e )
+        {
+            throw new LinkCheckException( "Could not load cache: " + e.getMessage(), e );
+        }
+
+        displayMemoryConsumption();
+
+        validator.warmUp();
+        if ( this.hostBatching || this.popularityOrder )
+        {
+            validator.validateScheduledLinks( ( http != null ) ? http.getConcurrentHosts() : 1 );
+        }
+        else
         {
-            checkFile( file, model );
+            validator.clearScheduledLinks();
+        }
+
+        int errors = 0;
+        int checked = 0;
+        for ( File file : files )
+        {
+            Page page = scanFile( file );
+            errors += check( page );
+            checked++;
+
+            model.addFile( page.file );
+
+            if ( this.errorBudget >= 0 && errors > this.errorBudget )
+            {
+                validator.abort( "more than " + this.errorBudget + " broken link(s) found" );
+                if ( LOG.isWarnEnabled() )
+                {
+                    LOG.warn( ( files.size() - checked ) + " file(s) not checked, the error budget is exceeded." );
+                }
+                break;
+            }
         }
     }
 
-    private void checkFile( File file, LinkcheckModel model )
+    /**
+     * Creates the linkcheck file of a page and extracts its links.
+     *
+     * @param file the page.
+     * @return the page with its links, never null.
+     */
+    private Page scanFile( File file )
     {
         if ( LOG.isDebugEnabled() )
         {
@@ -453,32 +691,10 @@ public final class DefaultLinkCheck
         linkcheckFile.setAbsolutePath( file.getAbsolutePath() );
         linkcheckFile.setRelativePath( fileRelativePath );
 
-        check( linkcheckFile );
-
-        model.addFile( linkcheckFile );
-
-        if ( ( model.getFiles().size() % 100 == 0 ) && LOG.isInfoEnabled() )
-        {
-            LOG.info( "Found " + model.getFiles().size() + " files so far." );
-        }
-    }
-
-    /**
-     * Validates a linkcheck file.
-     *
-     * @param linkcheckFile the linkcheckFile object to validate
-     */
-    private void check( LinkcheckFile linkcheckFile )
-    {
         linkcheckFile.setSuccessful( 0 );
 
         linkcheckFile.setUnsuccessful( 0 );
 
-        if ( LOG.isDebugEnabled() )
-        {
-            LOG.debug( "Validating " + linkcheckFile.getRelativePath() );
-        }
-
         final Set<String> hrefs;
 
         try
@@ -501,17 +717,53 @@ public final class DefaultLinkCheck
 
             linkcheckFile.addResult( lcr );
 
-            return;
+            return new Page( linkcheckFile, null );
+        }
+
+        File source = new File( linkcheckFile.getAbsolutePath() );
+        List<LinkValidationItem> items = new ArrayList<>( hrefs.size() );
+        for ( String href : hrefs )
+        {
+            items.add( new LinkValidationItem( source, href ) );
+        }
+
+        return new Page( linkcheckFile, items );
+    }
+
+    /**
+     * Validates the links of a page.
+     *
+     * @param page the page to validate
+     * @return the number of links reported as errors.
+     */
+    private int check( Page page )
+    {
+        if ( page.items == null )
+        {
+            return 0;
+        }
+
+        LinkcheckFile linkcheckFile = page.file;
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Validating " + linkcheckFile.getRelativePath() );
+        }
+
+        if ( isOnline() && isRateLimited() )
+        {
+            // a rate limited host waits aside instead of holding the other links of the page
+            lvm.validatePageLinks( page.items, ( http != null ) ? http.getConcurrentHosts() : 1 );
         }
 
         LinkcheckFileResult lcr;
-        LinkValidationItem lvi;
         LinkValidationResult result;
+        int errors = 0;
 
-        for ( String href : hrefs )
+        for ( LinkValidationItem lvi : page.items )
         {
+            String href = lvi.getLink();
             lcr = new LinkcheckFileResult();
-            lvi = new LinkValidationItem( new File( linkcheckFile.getAbsolutePath() ), href );
             result = lvm.validateLink( lvi );
             lcr.setTarget( href );
             lcr.setErrorMessage( result.getErrorMessage() );
@@ -529,17 +781,10 @@ public final class DefaultLinkCheck
                     break;
                 case LinkcheckFileResult.ERROR_LEVEL:
                     boolean ignoredError = false;
-                    if ( result instanceof HTTPLinkValidationResult )
+                    if ( result instanceof HTTPLinkValidationResult
+                        && ( (HTTPLinkValidationResult) result ).hasExcludedStatus( getExcludedHttpStatusErrors() ) )
                     {
-                        HTTPLinkValidationResult httpResult = (HTTPLinkValidationResult) result;
-
-                        if ( httpResult.getHttpStatusCode() > 0
-                            && getExcludedHttpStatusErrors() != null
-                            && StringUtils.indexOfAny( String.valueOf( httpResult.getHttpStatusCode() ),
-                                                       toStringArray( getExcludedHttpStatusErrors() ) ) >= 0 )
-                        {
-                            ignoredError = true;
-                        }
+                        ignoredError = true;
                     }
 
                     if ( ignoredError )
@@ -549,6 +794,7 @@ public final class DefaultLinkCheck
                     else
                     {
                         linkcheckFile.setUnsuccessful( linkcheckFile.getUnsuccessful() + 1 );
+                        errors++;
                     }
 
                     lcr.setStatus( ignoredError ? LinkcheckFileResult.VALID : LinkcheckFileResult.ERROR );
@@ -558,17 +804,10 @@ public final class DefaultLinkCheck
                     break;
                 case LinkcheckFileResult.WARNING_LEVEL:
                     boolean ignoredWarning = false;
-                    if ( result instanceof HTTPLinkValidationResult )
+                    if ( result instanceof HTTPLinkValidationResult
+                        && ( (HTTPLinkValidationResult) result ).hasExcludedStatus( getExcludedHttpStatusWarnings() ) )
                     {
-                        HTTPLinkValidationResult httpResult = (HTTPLinkValidationResult) result;
-
-                        if ( httpResult.getHttpStatusCode() > 0
-                            && getExcludedHttpStatusWarnings() != null
-                            && StringUtils.indexOfAny( String.valueOf( httpResult.getHttpStatusCode() ),
-                                                       toStringArray( getExcludedHttpStatusWarnings() ) ) >= 0 )
-                        {
-                            ignoredWarning = true;
-                        }
+                        ignoredWarning = true;
                     }
 
                     if ( ignoredWarning )
@@ -584,6 +823,14 @@ public final class DefaultLinkCheck
 
                     linkcheckFile.addResult( lcr );
 
+                    break;
+                case LinkcheckFileResult.NOT_CHECKED_LEVEL:
+                    linkcheckFile.setUnsuccessful( linkcheckFile.getUnsuccessful() + 1 );
+
+                    lcr.setStatus( LinkcheckFileResult.NOT_CHECKED );
+
+                    linkcheckFile.addResult( lcr );
+
                     break;
                 case LinkcheckFileResult.UNKNOWN_LEVEL:
                 default:
@@ -596,6 +843,8 @@ public final class DefaultLinkCheck
                     break;
             }
         }
+
+        return errors;
     }
 
     /**
@@ -651,20 +900,179 @@ public final class DefaultLinkCheck
         }
 
         dir = null;
+
+        if ( !model.getHostMetrics().isEmpty() )
+        {
+            createMetricsDocument( model.getHostMetrics(), getLinkValidatorManager().getConnectionPoolStatistics() );
+        }
+    }
+
+    /**
+     * @return the file of the host metrics, next to the report output.
+     */
+    private File getMetricsOutput()
+    {
+        String name = this.reportOutput.getName();
+        int idx = name.lastIndexOf( '.' );
+
+        return new File( this.reportOutput.getParentFile(),
+                         ( ( idx > 0 ) ? name.substring( 0, idx ) : name ) + "-metrics.xml" );
+    }
+
+    /**
+     * Writes the metrics of the requests sent to the external hosts next to the report output.
+     *
+     * @param metrics the metrics per host.
+     * @param pool the usage of the connection pool, may be null.
+     * @throws IOException if any
+     */
+    private void createMetricsDocument( Map<String, HostMetrics> metrics, ConnectionPoolStatistics pool )
+        throws IOException
+    {
+        long[] bounds = HostMetrics.getLatencyBounds();
+
+        try ( Writer writer = WriterFactory.newXmlWriter( getMetricsOutput() ) )
+        {
+            XMLWriter xml = new PrettyPrintXMLWriter( writer, "UTF-8", null );
+            xml.startElement( "linkcheckMetrics" );
+            if ( pool != null )
+            {
+                xml.startElement( "connectionPool" );
+                writeElement( xml, "connectionsOpened", pool.getConnectionsOpened() );
+                writeElement( xml, "connectionsReused", pool.getConnectionsReused() );
+                writeElement( xml, "peakLeasedConnections", pool.getPeakLeasedConnections() );
+                writeElement( xml, "totalWaitTime", pool.getTotalWaitTime() );
+                writeElement( xml, "maxWaitTime", pool.getMaxWaitTime() );
+                writeElement( xml, "waitTimeouts", pool.getWaitTimeouts() );
+                xml.endElement();
+            }
+            for ( HostMetrics hostMetrics : metrics.values() )
+            {
+                xml.startElement( "host" );
+                xml.addAttribute( "name", hostMetrics.getHost() );
+                writeElement( xml, "requests", hostMetrics.getRequests() );
+                writeElement( xml, "timeouts", hostMetrics.getTimeouts() );
+                writeElement( xml, "connectionFailures", hostMetrics.getConnectionFailures() );
+                writeElement( xml, "errors", hostMetrics.getErrors() );
+                writeElement( xml, "redirects", hostMetrics.getRedirects() );
+                writeElement( xml, "bytesRead", hostMetrics.getBytesRead() );
+
+                xml.startElement( "latency" );
+                xml.addAttribute( "mean", String.valueOf( hostMetrics.getMeanLatency() ) );
+                xml.addAttribute( "p50", String.valueOf( hostMetrics.getLatencyPercentile( 50 ) ) );
+                xml.addAttribute( "p90", String.valueOf( hostMetrics.getLatencyPercentile( 90 ) ) );
+                xml.addAttribute( "p99", String.valueOf( hostMetrics.getLatencyPercentile( 99 ) ) );
+                xml.addAttribute( "max", String.valueOf( hostMetrics.getMaxLatency() ) );
+                long[] histogram = hostMetrics.getLatencyHistogram();
+                for ( int i = 0; i < histogram.length; i++ )
+                {
+                    if ( histogram[i] > 0 )
+                    {
+                        xml.startElement( "bucket" );
+                        xml.addAttribute( "le", ( i < bounds.length ) ? String.valueOf( bounds[i] ) : "+Inf" );
+                        xml.writeText( String.valueOf( histogram[i] ) );
+                        xml.endElement();
+                    }
+                }
+                xml.endElement();
+
+                xml.startElement( "statuses" );
+                for ( Map.Entry<Integer, Long> status : hostMetrics.getStatusCounts().entrySet() )
+                {
+                    xml.startElement( "status" );
+                    xml.addAttribute( "code", String.valueOf( status.getKey() ) );
+                    xml.writeText( String.valueOf( status.getValue() ) );
+                    xml.endElement();
+                }
+                xml.endElement();
+
+                xml.endElement();
+            }
+            xml.endElement();
+        }
+    }
+
+    private static void writeElement( XMLWriter xml, String name, long value )
+    {
+        xml.startElement( name );
+        xml.writeText( String.valueOf( value ) );
+        xml.endElement();
+    }
+
+    /**
+     * Logs the hosts with the highest latency, and the usage of the connection pool.
+     *
+     * @param metrics the metrics per host.
+     */
+    private void logSlowestHosts( Map<String, HostMetrics> metrics )
+    {
+        if ( metrics.isEmpty() || !LOG.isInfoEnabled() )
+        {
+            return;
+        }
+
+        List<HostMetrics> hosts = new ArrayList<>( metrics.values() );
+        Collections.sort( hosts, new Comparator<HostMetrics>()
+        {
+            @Override
+            public int compare( HostMetrics o1, HostMetrics o2 )
+            {
+                long diff = o2.getLatencyPercentile( 99 ) - o1.getLatencyPercentile( 99 );
+
+                return ( diff < 0 ) ? -1 : ( ( diff > 0 ) ? 1 : 0 );
+            }
+        } );
+
+        LOG.info( "Slowest hosts:" );
+        for ( HostMetrics hostMetrics : hosts.subList( 0, Math.min( SLOWEST_HOSTS, hosts.size() ) ) )
+        {
+            LOG.info( "  " + hostMetrics );
+        }
+
+        ConnectionPoolStatistics pool = getLinkValidatorManager().getConnectionPoolStatistics();
+        if ( pool != null )
+        {
+            LOG.info( "Connection pool: " + pool + "." );
+        }
     }
 
-    private static String[] toStringArray( int[] array )
+    /**
+     * Logs how the links were served, from the cache or by a validator, and the time spent by each validator.
+     *
+     * @param statistics the statistics of the run.
+     */
+    private static void logValidationStatistics( ValidationStatistics statistics )
     {
-        if ( array == null )
+        if ( !LOG.isInfoEnabled() )
         {
-            throw new IllegalArgumentException( "array could not be null" );
+            return;
         }
 
-        String[] result = new String[array.length];
-        for ( int i = 0; i < array.length; i++ )
+        LOG.info( "Validation: " + statistics + "." );
+        for ( ValidatorMetrics metrics : statistics.getValidatorMetrics().values() )
+        {
+            if ( metrics.getValidations() > 0 )
+            {
+                LOG.info( "  " + metrics );
+            }
+        }
+    }
+
+    /**
+     * A page to check, with the links found in it.
+     */
+    private static final class Page
+    {
+        /** The linkcheck file of the page. */
+        private final LinkcheckFile file;
+
+        /** The links of the page, null if the page could not be parsed. */
+        private final List<LinkValidationItem> items;
+
+        private Page( LinkcheckFile file, List<LinkValidationItem> items )
         {
-            result[i] = String.valueOf( array[i] );
+            this.file = file;
+            this.items = items;
         }
-        return result;
     }
 }
@@ -20,6 +20,7 @@ package org.apache.maven.doxia.linkcheck;
  */
 
 import java.io.File;
+import java.util.Map;
 
 import org.apache.maven.doxia.linkcheck.model.LinkcheckModel;
 
@@ -47,6 +48,16 @@ public interface LinkCheck
      */
     void setBaseURL( String url );
 
+    /**
+     * Sets whether the site links, i.e. the links starting with '/' or with the base URL, are checked against
+     * the files of the base directory, anchors included, instead of requesting the deployed site. The site may
+     * indeed not be deployed yet, or be outdated.
+     *
+     * @param local <code>true</code> to check the site links locally, <code>false</code> by default.
+     * @since 1.3
+     */
+    void setSiteLinksLocal( boolean local );
+
     /**
      * Sets the excluded HTTP errors, i.e. <code>404</code>, a int[] with excluded errors.
      * See {@link org.apache.commons.httpclient.HttpStatus} for all possible values.
@@ -87,12 +98,125 @@ public interface LinkCheck
     void setHttp( HttpBean http );
 
     /**
-     * Sets the cache File.
+     * Sets the cache File. It can be shared by builds running at the same time, which merge their results into it.
      *
      * @param cacheFile The cacheFile to set. Set this to null to ignore storing the cache.
      */
     void setLinkCheckCache( File cacheFile );
 
+    /**
+     * Sets whether the results loaded from the cache file are revalidated once per run instead of being trusted.
+     * HTTP links are revalidated with conditional requests using the <code>ETag</code> and
+     * <code>Last-Modified</code> headers stored in the cache.
+     *
+     * @param revalidate <code>true</code> to revalidate cached results, <code>false</code> by default.
+     * @since 1.3
+     */
+    void setRevalidateCache( boolean revalidate );
+
+    /**
+     * Sets the time to live of valid results and warnings in the cache. Expired valid results are still used,
+     * while they are refreshed in the background within the revalidation budget. Expired warnings are validated
+     * again.
+     *
+     * @param ttl the time to live in milliseconds, negative if these results never expire (the default).
+     * @see #setCacheRevalidationBudget(int)
+     * @since 1.3
+     */
+    void setCacheSuccessTtl( long ttl );
+
+    /**
+     * Sets the time to live of errors in the cache, e.g. unknown hosts, unreachable hosts or missing pages.
+     * Errors are only kept across runs when this time to live is positive, and validated again once expired.
+     *
+     * @param ttl the time to live in milliseconds, zero or negative if errors are only kept for the current run
+     * (the default, <code>-1</code>).
+     * @since 1.3
+     */
+    void setCacheFailureTtl( long ttl );
+
+    /**
+     * Sets the time to live of cached results per host, overriding the success and failure ones.
+     * A key is a host name, i.e. <code>maven.apache.org</code>, or a domain pattern, i.e. <code>*.apache.org</code>.
+     *
+     * @param ttls the time to live in milliseconds per host.
+     * @since 1.3
+     */
+    void setCacheHostTtls( Map<String, Long> ttls );
+
+    /**
+     * Sets the maximum number of expired valid results refreshed in the background per run.
+     *
+     * @param budget the number of background refreshes, <code>50</code> by default.
+     * @since 1.3
+     */
+    void setCacheRevalidationBudget( int budget );
+
+    /**
+     * Sets whether the cached results are kept off-heap, in a memory-mapped index next to the cache file, rather
+     * than read in memory. This keeps the heap small with very large caches, and the index left by the previous
+     * run is used without reading the cache file when it has not changed since.
+     *
+     * @param offHeap <code>true</code> to keep the cached results off-heap, <code>false</code> by default.
+     * @since 1.3
+     */
+    void setOffHeapCache( boolean offHeap );
+
+    /**
+     * Sets the maximum number of results kept in memory but not stored in the cache file, the least recently used
+     * ones being evicted beyond these numbers. This bounds the memory used by very large sites, whose local files
+     * are only checked again when they are linked after their result was evicted.
+     *
+     * @param maxLocal the maximum number of results of local files, negative for no limit,
+     * <code>100000</code> by default.
+     * @param maxRemote the maximum number of other results, negative for no limit, <code>10000</code> by default.
+     * @since 1.3
+     */
+    void setMaxTransientResults( int maxLocal, int maxRemote );
+
+    /**
+     * Sets the host batching mode. In online mode, all the external links are then validated before the pages
+     * are processed, grouped by scheme, host and port so that the requests to a host reuse the same keep-alive
+     * connections. {@link HttpBean#getConcurrentHosts()} hosts are validated at a time.
+     *
+     * @param batching <code>true</code> to batch the external links by host, <code>false</code> by default.
+     * @since 1.3
+     */
+    void setHostBatching( boolean batching );
+
+    /**
+     * Sets the popularity order. In online mode, all the external links are then validated before the pages are
+     * processed, the links referenced by the most pages first, so that the most visible breakages are found early.
+     * The links are grouped by host as with {@link #setHostBatching(boolean)}.
+     *
+     * @param popular <code>true</code> to validate the most referenced links first, <code>false</code> by default.
+     * @since 1.3
+     */
+    void setPopularityOrder( boolean popular );
+
+    /**
+     * Sets the time budget of the external links. Once it is exhausted, the requests in flight are aborted and
+     * the remaining external links are reported with the not checked status, as not checked within budget.
+     * The local links are always checked, and the report is written.
+     *
+     * @param budget the time budget in milliseconds from the start of the check, 0 or less for no budget (the
+     * default).
+     * @since 1.3
+     */
+    void setOnlineTimeBudget( long budget );
+
+    /**
+     * Sets the error budget. Once more links than the budget are reported as errors, the check is aborted: the
+     * remaining files are not checked, and the partial report states the reason, see
+     * {@link org.apache.maven.doxia.linkcheck.model.LinkcheckModel#getAbortReason()}. The errors ignored with
+     * {@link #setExcludedHttpStatusErrors(int[])} are not counted.
+     *
+     * @param budget the number of errors tolerated, <code>0</code> to stop at the first one, negative for no limit
+     * (the default).
+     * @since 1.3
+     */
+    void setErrorBudget( int budget );
+
     /**
      * Set the online mode.
      *
@@ -103,6 +227,8 @@ public interface LinkCheck
     /**
      * Set the output file for the results.
      * If this is null, no output will be written.
+     * In online mode, the metrics of the requests per host are written next to it, e.g.
+     * <code>linkcheck-metrics.xml</code> for <code>linkcheck.xml</code>.
      *
      * @param file the output file.
      */
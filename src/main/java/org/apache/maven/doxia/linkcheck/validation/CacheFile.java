@@ -0,0 +1,763 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The persistent cache file: a versioned header followed by length-prefixed records, appended as the results are
+ * produced. The newest result of a key replaces the older ones, and a removal record drops the ones which are not
+ * newer than the removal, so that the file only needs to be rewritten to compact it.
+ * <p>
+ * A record is an <code>int</code> length followed by the kind of the record and the key. The result records then
+ * hold the type of the result, its status, persistent flag, creation time and message, and for an HTTP result its
+ * status code, <code>ETag</code>, <code>Last-Modified</code> and <code>Location</code> headers. The removal records
+ * hold the time of the removal. The strings are
+ * stored as an <code>int</code> length, <code>-1</code> for null, followed by their UTF-8 bytes.
+ * An incomplete last record, left by an interrupted run, is ignored and overwritten by the next appends.
+ * </p>
+ * <p>
+ * The file can be shared by several processes: the records are written in batches holding an exclusive lock on
+ * a <code>.lock</code> file next to it, and the file is rewritten by merging its current content into a temporary
+ * file, atomically renamed over it. As the processes append their records in no particular order, the time of the
+ * results and removals decides which one wins, and the removals are kept when the file is rewritten so that an
+ * older result merged later by another process is still dropped.
+ * </p>
+ *
+ * @since 1.3
+ */
+final class CacheFile
+    implements Closeable
+{
+    /** Log for debug output. */
+    private static final Log LOG = LogFactory.getLog( CacheFile.class );
+
+    /** The first bytes of the file: "LCKC". */
+    private static final int MAGIC = 0x4C434B43;
+
+    /** The version of the format. */
+    private static final int VERSION = 2;
+
+    /** The size of the header: magic and version. */
+    private static final int HEADER_SIZE = 8;
+
+    /** The first bytes of a file written by Java serialization, i.e. by older versions. */
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    /** The size of the appended records written at once. */
+    private static final int BATCH_SIZE = 64 * 1024;
+
+    /** Record kind: the result of a link. */
+    private static final byte RESULT = 1;
+
+    /** Record kind: a redirect hop. */
+    private static final byte REDIRECT = 2;
+
+    /** Record kind: the result of a link is removed. */
+    private static final byte REMOVED_RESULT = 3;
+
+    /** Record kind: a redirect hop is removed. */
+    private static final byte REMOVED_REDIRECT = 4;
+
+    /** Result type: {@link LinkValidationResult}. */
+    private static final byte PLAIN = 0;
+
+    /** Result type: {@link HTTPLinkValidationResult}. */
+    private static final byte HTTP = 1;
+
+    /** Serializes the writes of this JVM, as a file lock is held by the whole JVM. */
+    private static final Object JVM_LOCK = new Object();
+
+    /** The file. */
+    private final File file;
+
+    /** The lock file. */
+    private final File lockFile;
+
+    /** The length of the file when it was loaded, -1 if it was not. */
+    private long loadedLength = -1;
+
+    /** The length of the valid part of the file when it was loaded, -1 if it was not. */
+    private long validLength = -1;
+
+    /** The number of records in the file. */
+    private int records;
+
+    /** Whether another process wrote to the file since it was loaded. */
+    private boolean shared;
+
+    /** The records appended but not written yet. */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream( BATCH_SIZE );
+
+    /** Writes into {@link #pending}. */
+    private final DataOutputStream pendingOut = new DataOutputStream( pending );
+
+    /** The number of records appended but not written yet. */
+    private int pendingRecords;
+
+    /** The buffer of the record being written. */
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream( 256 );
+
+    /** Writes into {@link #record}. */
+    private final DataOutputStream recordOut = new DataOutputStream( record );
+
+    /**
+     * @param file the cache file, which may not exist yet.
+     */
+    CacheFile( File file )
+    {
+        this.file = file;
+        this.lockFile = new File( file.getPath() + ".lock" );
+    }
+
+    /**
+     * @return the cache file.
+     */
+    File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the number of records in the file, including the replaced and removed ones.
+     */
+    synchronized int getRecordCount()
+    {
+        return this.records + this.pendingRecords;
+    }
+
+    /**
+     * @return the length of the file when it was last loaded or written, -1 if it was not.
+     */
+    synchronized long getLength()
+    {
+        return this.loadedLength;
+    }
+
+    /**
+     * @return <code>true</code> if another process wrote to the file since it was loaded, so that the loaded
+     * results and the appended ones are not all the file holds.
+     */
+    synchronized boolean isShared()
+    {
+        return this.shared;
+    }
+
+    /**
+     * Takes the file as loaded without reading it, its content being known from an index of it.
+     *
+     * @param length the length of the file.
+     * @param count the number of records in the file.
+     */
+    synchronized void assumeLoaded( long length, int count )
+    {
+        this.loadedLength = length;
+        this.validLength = length;
+        this.records = count;
+        this.shared = false;
+    }
+
+    /**
+     * @param file a file.
+     * @return <code>true</code> if the file was written by Java serialization, i.e. by older versions.
+     * @throws IOException if the file cannot be read.
+     */
+    static boolean isSerialized( File file )
+        throws IOException
+    {
+        try ( FileInputStream in = new FileInputStream( file ) )
+        {
+            return ( ( in.read() << 8 ) | in.read() ) == SERIALIZATION_MAGIC;
+        }
+    }
+
+    /**
+     * Reads the file with memory-mapped I/O. A file in another format or version is ignored, and will be written
+     * from scratch by the next appends.
+     *
+     * @param results the map to put the results to.
+     * @param redirects the map to put the redirect hops to.
+     * @return <code>true</code> if the file was read.
+     * @throws IOException if the file cannot be read.
+     */
+    synchronized boolean load( Map<? super String, LinkValidationResult> results,
+                               Map<String, HTTPLinkValidationResult> redirects )
+        throws IOException
+    {
+        this.loadedLength = -1;
+        this.validLength = -1;
+        this.records = 0;
+        this.shared = false;
+
+        if ( !this.file.isFile() || this.file.length() < HEADER_SIZE )
+        {
+            return false;
+        }
+
+        if ( this.file.length() > Integer.MAX_VALUE )
+        {
+            throw new IOException( "The cache file is too large: " + this.file.getAbsolutePath() );
+        }
+
+        try ( FileInputStream in = new FileInputStream( this.file );
+              FileChannel channel = in.getChannel() )
+        {
+            long size = channel.size();
+            if ( !read( channel.map( FileChannel.MapMode.READ_ONLY, 0, size ), results, redirects,
+                        new HashMap<String, Long>(), new HashMap<String, Long>() ) )
+            {
+                return false;
+            }
+            this.loadedLength = size;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the records of the given buffer.
+     *
+     * @param removedResults the time of the last removal of the results, per key, updated.
+     * @param removedRedirects the time of the last removal of the redirect hops, per link, updated.
+     * @return <code>false</code> if the buffer is not in the current format.
+     */
+    private boolean read( ByteBuffer buffer, Map<? super String, LinkValidationResult> results,
+                          Map<String, HTTPLinkValidationResult> redirects, Map<String, Long> removedResults,
+                          Map<String, Long> removedRedirects )
+    {
+        if ( buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC )
+        {
+            return false;
+        }
+        int version = buffer.getInt();
+        if ( version != VERSION )
+        {
+            LOG.warn( "Your cache has the unsupported version " + version + ". It will be recreated." );
+            return false;
+        }
+
+        int count = 0;
+        long valid = buffer.position();
+        while ( buffer.remaining() >= 4 )
+        {
+            int length = buffer.getInt();
+            if ( length <= 0 || length > buffer.remaining() )
+            {
+                break;
+            }
+
+            ByteBuffer slice = buffer.slice();
+            // through Buffer, as ByteBuffer only overrides limit and position since Java 9
+            ( (Buffer) slice ).limit( length );
+            try
+            {
+                readRecord( slice, results, redirects, removedResults, removedRedirects );
+            }
+            catch ( BufferUnderflowException | IllegalArgumentException e )
+            {
+                break;
+            }
+            ( (Buffer) buffer ).position( buffer.position() + length );
+
+            valid = buffer.position();
+            count++;
+        }
+
+        if ( valid < buffer.limit() && LOG.isWarnEnabled() )
+        {
+            LOG.warn( "Ignoring the incomplete end of the cache file " + this.file.getAbsolutePath() + "." );
+        }
+        this.validLength = valid;
+        this.records = count;
+
+        return true;
+    }
+
+    private static void readRecord( ByteBuffer buffer, Map<? super String, LinkValidationResult> results,
+                                    Map<String, HTTPLinkValidationResult> redirects, Map<String, Long> removedResults,
+                                    Map<String, Long> removedRedirects )
+    {
+        byte kind = buffer.get();
+        String key = readString( buffer );
+        switch ( kind )
+        {
+            case RESULT:
+                LinkValidationResult result = readResult( buffer );
+                if ( isNewer( result, results.get( key ) ) && isNewer( result, removedResults.get( key ) ) )
+                {
+                    results.put( key, result );
+                }
+                break;
+            case REDIRECT:
+                LinkValidationResult hop = readResult( buffer );
+                if ( hop instanceof HTTPLinkValidationResult && isNewer( hop, redirects.get( key ) )
+                    && isNewer( hop, removedRedirects.get( key ) ) )
+                {
+                    redirects.put( key, (HTTPLinkValidationResult) hop );
+                }
+                break;
+            case REMOVED_RESULT:
+                long time = buffer.getLong();
+                if ( !isNewer( results.get( key ), time ) )
+                {
+                    results.remove( key );
+                }
+                addRemoval( removedResults, key, time );
+                break;
+            case REMOVED_REDIRECT:
+                long hopTime = buffer.getLong();
+                if ( !isNewer( redirects.get( key ), hopTime ) )
+                {
+                    redirects.remove( key );
+                }
+                addRemoval( removedRedirects, key, hopTime );
+                break;
+            default:
+                throw new IllegalArgumentException( "Unknown record kind " + kind );
+        }
+    }
+
+    /**
+     * @param result a result, may be null.
+     * @param removal the time of a removal of the result, may be null.
+     * @return <code>true</code> if the result was created after the removal, and survives it.
+     */
+    private static boolean isNewer( LinkValidationResult result, Long removal )
+    {
+        return result != null && ( removal == null || removal < result.getTimestamp() );
+    }
+
+    private static void addRemoval( Map<String, Long> removals, String key, long time )
+    {
+        Long previous = removals.get( key );
+        if ( previous == null || previous < time )
+        {
+            removals.put( key, time );
+        }
+    }
+
+    /**
+     * @param result a result.
+     * @param existing the result it would replace, may be null.
+     * @return <code>true</code> if the result is at least as recent as the existing one, the results appended
+     * by several processes not being in chronological order.
+     */
+    private static boolean isNewer( LinkValidationResult result, LinkValidationResult existing )
+    {
+        return existing == null || existing.getTimestamp() <= result.getTimestamp();
+    }
+
+    private static LinkValidationResult readResult( ByteBuffer buffer )
+    {
+        byte type = buffer.get();
+        int status = buffer.getInt();
+        boolean persistent = buffer.get() != 0;
+        long timestamp = buffer.getLong();
+        String message = readString( buffer );
+        if ( type == PLAIN )
+        {
+            return new LinkValidationResult( status, persistent, message, timestamp );
+        }
+        if ( type == HTTP )
+        {
+            int httpStatusCode = buffer.getInt();
+            String etag = readString( buffer );
+            String lastModified = readString( buffer );
+            String location = readString( buffer );
+
+            return new HTTPLinkValidationResult( status, persistent, httpStatusCode, message, etag, lastModified,
+                                                 location, timestamp );
+        }
+
+        throw new IllegalArgumentException( "Unknown result type " + type );
+    }
+
+    private static String readString( ByteBuffer buffer )
+    {
+        int length = buffer.getInt();
+        if ( length < 0 )
+        {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get( bytes );
+
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Appends a result.
+     *
+     * @param key the key of the result.
+     * @param result the result.
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void appendResult( String key, LinkValidationResult result )
+        throws IOException
+    {
+        beginRecord( RESULT, key );
+        writeResult( result );
+        endRecord();
+    }
+
+    /**
+     * Appends a redirect hop.
+     *
+     * @param link the redirected link.
+     * @param hop the redirect hop.
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void appendRedirect( String link, HTTPLinkValidationResult hop )
+        throws IOException
+    {
+        beginRecord( REDIRECT, link );
+        writeResult( hop );
+        endRecord();
+    }
+
+    /**
+     * Appends the removal of a result.
+     *
+     * @param key the key of the result.
+     * @param time the time of the removal: the results which are not newer are removed.
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void appendRemovedResult( String key, long time )
+        throws IOException
+    {
+        beginRecord( REMOVED_RESULT, key );
+        this.recordOut.writeLong( time );
+        endRecord();
+    }
+
+    /**
+     * Appends the removal of a redirect hop.
+     *
+     * @param link the redirected link.
+     * @param time the time of the removal: the redirect hops which are not newer are removed.
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void appendRemovedRedirect( String link, long time )
+        throws IOException
+    {
+        beginRecord( REMOVED_REDIRECT, link );
+        this.recordOut.writeLong( time );
+        endRecord();
+    }
+
+    /**
+     * Rewrites the file, compacting its current content, which includes the records appended by other
+     * processes, merged with the given entries: the newest result of a key is kept, unless it was removed since.
+     * The file is replaced atomically where the file system supports it.
+     *
+     * @param results the results to merge.
+     * @param redirects the redirect hops to merge.
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void merge( Map<String, LinkValidationResult> results,
+                             Map<String, HTTPLinkValidationResult> redirects )
+        throws IOException
+    {
+        synchronized ( JVM_LOCK )
+        {
+            try ( RandomAccessFile lock = openLockFile();
+                  FileLock fileLock = lock.getChannel().lock() )
+            {
+                writePendingLocked();
+
+                Map<String, LinkValidationResult> mergedResults = new HashMap<>();
+                Map<String, HTTPLinkValidationResult> mergedRedirects = new HashMap<>();
+                Map<String, Long> removedResults = new HashMap<>();
+                Map<String, Long> removedRedirects = new HashMap<>();
+                if ( this.file.isFile() )
+                {
+                    // not mapped, so that the file can then be replaced on every platform
+                    try ( RandomAccessFile raf = new RandomAccessFile( this.file, "r" ) )
+                    {
+                        byte[] bytes = new byte[(int) raf.length()];
+                        raf.readFully( bytes );
+                        read( ByteBuffer.wrap( bytes ), mergedResults, mergedRedirects, removedResults,
+                              removedRedirects );
+                    }
+                }
+                for ( Map.Entry<String, LinkValidationResult> entry : results.entrySet() )
+                {
+                    if ( isNewer( entry.getValue(), mergedResults.get( entry.getKey() ) )
+                        && isNewer( entry.getValue(), removedResults.get( entry.getKey() ) ) )
+                    {
+                        mergedResults.put( entry.getKey(), entry.getValue() );
+                    }
+                }
+                for ( Map.Entry<String, HTTPLinkValidationResult> entry : redirects.entrySet() )
+                {
+                    if ( isNewer( entry.getValue(), mergedRedirects.get( entry.getKey() ) )
+                        && isNewer( entry.getValue(), removedRedirects.get( entry.getKey() ) ) )
+                    {
+                        mergedRedirects.put( entry.getKey(), entry.getValue() );
+                    }
+                }
+
+                // a removal is only needed while no newer result replaces it
+                removedResults.keySet().removeAll( mergedResults.keySet() );
+                removedRedirects.keySet().removeAll( mergedRedirects.keySet() );
+
+                replace( mergedResults, mergedRedirects, removedResults, removedRedirects );
+            }
+        }
+    }
+
+    /**
+     * Writes the given entries to a temporary file, and renames it over the file.
+     */
+    private void replace( Map<String, LinkValidationResult> results, Map<String, HTTPLinkValidationResult> redirects,
+                          Map<String, Long> removedResults, Map<String, Long> removedRedirects )
+        throws IOException
+    {
+        File dir = this.file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+        File tmp = File.createTempFile( this.file.getName(), ".tmp", dir );
+        try
+        {
+            try ( DataOutputStream out =
+                new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ), BATCH_SIZE ) ) )
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                for ( Map.Entry<String, LinkValidationResult> entry : results.entrySet() )
+                {
+                    beginRecord( RESULT, entry.getKey() );
+                    writeResult( entry.getValue() );
+                    out.writeInt( this.record.size() );
+                    this.record.writeTo( out );
+                }
+                for ( Map.Entry<String, HTTPLinkValidationResult> entry : redirects.entrySet() )
+                {
+                    beginRecord( REDIRECT, entry.getKey() );
+                    writeResult( entry.getValue() );
+                    out.writeInt( this.record.size() );
+                    this.record.writeTo( out );
+                }
+                for ( Map.Entry<String, Long> entry : removedResults.entrySet() )
+                {
+                    beginRecord( REMOVED_RESULT, entry.getKey() );
+                    this.recordOut.writeLong( entry.getValue() );
+                    out.writeInt( this.record.size() );
+                    this.record.writeTo( out );
+                }
+                for ( Map.Entry<String, Long> entry : removedRedirects.entrySet() )
+                {
+                    beginRecord( REMOVED_REDIRECT, entry.getKey() );
+                    this.recordOut.writeLong( entry.getValue() );
+                    out.writeInt( this.record.size() );
+                    this.record.writeTo( out );
+                }
+            }
+
+            try
+            {
+                Files.move( tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( tmp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            tmp.delete();
+        }
+
+        this.records = results.size() + redirects.size() + removedResults.size() + removedRedirects.size();
+        this.loadedLength = this.file.length();
+        this.validLength = this.loadedLength;
+    }
+
+    /**
+     * Writes the appended records to the file.
+     *
+     * @throws IOException if something goes wrong.
+     */
+    synchronized void flush()
+        throws IOException
+    {
+        if ( this.pendingRecords == 0 )
+        {
+            return;
+        }
+
+        synchronized ( JVM_LOCK )
+        {
+            try ( RandomAccessFile lock = openLockFile();
+                  FileLock fileLock = lock.getChannel().lock() )
+            {
+                writePendingLocked();
+            }
+        }
+    }
+
+    /**
+     * Writes the appended records to the file.
+     */
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        flush();
+    }
+
+    private RandomAccessFile openLockFile()
+        throws IOException
+    {
+        File dir = this.lockFile.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+
+        return new RandomAccessFile( this.lockFile, "rw" );
+    }
+
+    /**
+     * Writes the pending records at the end of the file, holding the lock. The file is opened each time, as
+     * another process may have replaced it.
+     */
+    private void writePendingLocked()
+        throws IOException
+    {
+        if ( this.pendingRecords == 0 )
+        {
+            return;
+        }
+
+        try ( RandomAccessFile raf = new RandomAccessFile( this.file, "rw" ) )
+        {
+            long length = raf.length();
+            boolean valid = false;
+            if ( length >= HEADER_SIZE )
+            {
+                valid = raf.readInt() == MAGIC && raf.readInt() == VERSION;
+            }
+
+            if ( !valid )
+            {
+                // a new file, or one in another format: start over
+                raf.setLength( 0 );
+                raf.writeInt( MAGIC );
+                raf.writeInt( VERSION );
+                this.records = 0;
+            }
+            else if ( length != this.loadedLength )
+            {
+                // another process appended to the file, or replaced it
+                this.shared = true;
+            }
+            else if ( this.validLength >= 0 && this.validLength < this.loadedLength )
+            {
+                // drop an incomplete record left by an interrupted run, if no other process appended since
+                raf.setLength( this.validLength );
+            }
+
+            raf.seek( raf.length() );
+            raf.write( this.pending.toByteArray() );
+
+            this.loadedLength = raf.length();
+            this.validLength = this.loadedLength;
+        }
+
+        this.records += this.pendingRecords;
+        this.pending.reset();
+        this.pendingRecords = 0;
+    }
+
+    private void beginRecord( byte kind, String key )
+        throws IOException
+    {
+        this.record.reset();
+        this.recordOut.writeByte( kind );
+        writeString( this.recordOut, key );
+    }
+
+    private void endRecord()
+        throws IOException
+    {
+        this.pendingOut.writeInt( this.record.size() );
+        this.record.writeTo( this.pendingOut );
+        this.pendingRecords++;
+
+        if ( this.pending.size() >= BATCH_SIZE )
+        {
+            flush();
+        }
+    }
+
+    private void writeResult( LinkValidationResult result )
+        throws IOException
+    {
+        boolean http = result instanceof HTTPLinkValidationResult;
+        this.recordOut.writeByte( http ? HTTP : PLAIN );
+        this.recordOut.writeInt( result.getStatus() );
+        this.recordOut.writeBoolean( result.isPersistent() );
+        this.recordOut.writeLong( result.getTimestamp() );
+        writeString( this.recordOut, result.getMessage() );
+        if ( http )
+        {
+            HTTPLinkValidationResult httpResult = (HTTPLinkValidationResult) result;
+            this.recordOut.writeInt( httpResult.getHttpStatusCode() );
+            writeString( this.recordOut, httpResult.getEtag() );
+            writeString( this.recordOut, httpResult.getLastModified() );
+            writeString( this.recordOut, httpResult.getLocation() );
+        }
+    }
+
+    private static void writeString( DataOutputStream stream, String s )
+        throws IOException
+    {
+        if ( s == null )
+        {
+            stream.writeInt( -1 );
+            return;
+        }
+
+        byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        stream.writeInt( bytes.length );
+        stream.write( bytes );
+    }
+}
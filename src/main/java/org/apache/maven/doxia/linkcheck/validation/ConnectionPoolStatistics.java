@@ -0,0 +1,118 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A snapshot of the usage of the HTTP connection pool of an online validation.
+ *
+ * @since 1.3
+ */
+public final class ConnectionPoolStatistics
+{
+    private final long connectionsOpened;
+
+    private final long connectionsReused;
+
+    private final int leasedConnections;
+
+    private final int peakLeasedConnections;
+
+    private final long totalWaitTime;
+
+    private final long maxWaitTime;
+
+    private final long waitTimeouts;
+
+    ConnectionPoolStatistics( long connectionsOpened, long connectionsReused, int leasedConnections,
+                              int peakLeasedConnections, long totalWaitTime, long maxWaitTime, long waitTimeouts )
+    {
+        this.connectionsOpened = connectionsOpened;
+        this.connectionsReused = connectionsReused;
+        this.leasedConnections = leasedConnections;
+        this.peakLeasedConnections = peakLeasedConnections;
+        this.totalWaitTime = totalWaitTime;
+        this.maxWaitTime = maxWaitTime;
+        this.waitTimeouts = waitTimeouts;
+    }
+
+    /**
+     * @return the number of connections handed out which had to be opened.
+     */
+    public long getConnectionsOpened()
+    {
+        return connectionsOpened;
+    }
+
+    /**
+     * @return the number of connections handed out already open, i.e. kept alive.
+     */
+    public long getConnectionsReused()
+    {
+        return connectionsReused;
+    }
+
+    /**
+     * @return the number of connections in use when the snapshot was taken.
+     */
+    public int getLeasedConnections()
+    {
+        return leasedConnections;
+    }
+
+    /**
+     * @return the highest number of connections in use at the same time.
+     */
+    public int getPeakLeasedConnections()
+    {
+        return peakLeasedConnections;
+    }
+
+    /**
+     * @return the total time in milliseconds spent waiting for a connection of the pool.
+     */
+    public long getTotalWaitTime()
+    {
+        return totalWaitTime;
+    }
+
+    /**
+     * @return the longest time in milliseconds spent waiting for a connection of the pool.
+     */
+    public long getMaxWaitTime()
+    {
+        return maxWaitTime;
+    }
+
+    /**
+     * @return the number of requests which gave up waiting for a connection of the pool.
+     */
+    public long getWaitTimeouts()
+    {
+        return waitTimeouts;
+    }
+
+    @Override
+    public String toString()
+    {
+        return connectionsOpened + " connection(s) opened, " + connectionsReused + " reused, at most "
+            + peakLeasedConnections + " in use, " + totalWaitTime + " ms waiting for the pool (max " + maxWaitTime
+            + " ms, " + waitTimeouts + " timeout(s))";
+    }
+}
@@ -0,0 +1,298 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The excluded links compiled once, matching a link with the semantics of
+ * {@link LinkValidatorManager#matchPattern(String, String)} at a cost which does not depend on the number of patterns.
+ * <p>
+ * The plain patterns, which exclude the links containing them, are compiled into an Aho-Corasick automaton finding
+ * any of them in a single pass over the link. The wildcard patterns are stored in a trie by their literal prefix,
+ * i.e. up to their first wildcard: only the patterns whose prefix starts the link are matched against it. The
+ * patterns starting with a wildcard, or with a <code>%regex[</code> or <code>%ant[</code> expression, are matched
+ * against every link.
+ * </p>
+ *
+ * @since 1.3
+ */
+final class ExcludedLinksMatcher
+{
+    /** Whether an empty pattern excludes the empty links. */
+    private final boolean empty;
+
+    /** The root of the automaton of the plain patterns, null if none. */
+    private final Node literals;
+
+    /** The root of the trie of the wildcard patterns, by literal prefix. */
+    private final Node prefixes;
+
+    /** The patterns matched against every link. */
+    private final String[] unanchored;
+
+    /**
+     * @param patterns the excluded links, may be null or contain null.
+     */
+    ExcludedLinksMatcher( String[] patterns )
+    {
+        boolean emptyPattern = false;
+        Node root = new Node();
+        boolean hasLiterals = false;
+        Node trie = new Node();
+        List<String> others = new ArrayList<>();
+
+        for ( String pattern : ( patterns == null ) ? new String[0] : patterns )
+        {
+            if ( pattern == null )
+            {
+                continue;
+            }
+
+            if ( pattern.isEmpty() )
+            {
+                emptyPattern = true;
+            }
+            else if ( pattern.indexOf( '*' ) == -1 )
+            {
+                // a trailing slash is optional
+                String literal = pattern.endsWith( "/" ) ? pattern.substring( 0, pattern.length() - 1 ) : pattern;
+                root.add( literal ).terminal = true;
+                hasLiterals = true;
+            }
+            else
+            {
+                int wildcard = firstWildcard( pattern );
+                if ( wildcard == 0 || pattern.startsWith( "%" ) )
+                {
+                    others.add( pattern );
+                }
+                else
+                {
+                    trie.add( pattern.substring( 0, wildcard ) ).addPattern( pattern );
+                }
+            }
+        }
+
+        this.empty = emptyPattern;
+        this.literals = hasLiterals ? root.link() : null;
+        this.prefixes = trie;
+        this.unanchored = others.toArray( new String[others.size()] );
+    }
+
+    /**
+     * @param link a link, not null.
+     * @return <code>true</code> if the link is excluded by a pattern.
+     */
+    boolean matches( String link )
+    {
+        if ( link.isEmpty() && this.empty )
+        {
+            return true;
+        }
+
+        if ( this.literals != null && containsLiteral( link ) )
+        {
+            return true;
+        }
+
+        // a pattern may also match the link followed by a slash
+        Node node = this.prefixes;
+        for ( int i = 0; node != null && i <= link.length(); i++ )
+        {
+            if ( node.patterns != null && matchesAny( link, node.patterns ) )
+            {
+                return true;
+            }
+            node = node.child( ( i < link.length() ) ? link.charAt( i ) : '/' );
+        }
+        if ( node != null && node.patterns != null && matchesAny( link, node.patterns ) )
+        {
+            return true;
+        }
+
+        return matchesAny( link, this.unanchored );
+    }
+
+    private boolean containsLiteral( String link )
+    {
+        Node state = this.literals;
+        if ( state.terminal )
+        {
+            // an empty literal is in every link
+            return true;
+        }
+
+        for ( int i = 0; i < link.length(); i++ )
+        {
+            char c = link.charAt( i );
+            Node next = state.child( c );
+            while ( next == null && state != this.literals )
+            {
+                state = state.failure;
+                next = state.child( c );
+            }
+            state = ( next == null ) ? this.literals : next;
+
+            if ( state.terminal )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean matchesAny( String link, String[] patterns )
+    {
+        for ( String pattern : patterns )
+        {
+            if ( LinkValidatorManager.matchPattern( link, pattern ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the index of the first wildcard of the pattern, <code>*</code> or <code>?</code>.
+     */
+    private static int firstWildcard( String pattern )
+    {
+        for ( int i = 0; i < pattern.length(); i++ )
+        {
+            char c = pattern.charAt( i );
+            if ( c == '*' || c == '?' )
+            {
+                return i;
+            }
+        }
+
+        return pattern.length();
+    }
+
+    /**
+     * A node of a trie, with the failure links of an Aho-Corasick automaton once linked. The children are kept in
+     * a sorted array of characters, searched by bisection.
+     */
+    private static final class Node
+    {
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        /** The longest proper suffix of this node which is also in the trie. */
+        private Node failure;
+
+        /** Whether a plain pattern ends here, or at a suffix of this node. */
+        private boolean terminal;
+
+        /** The wildcard patterns with this prefix, null if none. */
+        private String[] patterns;
+
+        Node child( char c )
+        {
+            int i = Arrays.binarySearch( this.keys, c );
+
+            return ( i < 0 ) ? null : this.children[i];
+        }
+
+        /**
+         * @return the node of the given string, added if needed.
+         */
+        Node add( String s )
+        {
+            Node node = this;
+            for ( int i = 0; i < s.length(); i++ )
+            {
+                char c = s.charAt( i );
+                Node next = node.child( c );
+                if ( next == null )
+                {
+                    next = new Node();
+                    int at = -1 - Arrays.binarySearch( node.keys, c );
+                    node.keys = Arrays.copyOf( node.keys, node.keys.length + 1 );
+                    node.children = Arrays.copyOf( node.children, node.children.length + 1 );
+                    System.arraycopy( node.keys, at, node.keys, at + 1, node.keys.length - at - 1 );
+                    System.arraycopy( node.children, at, node.children, at + 1, node.children.length - at - 1 );
+                    node.keys[at] = c;
+                    node.children[at] = next;
+                }
+                node = next;
+            }
+
+            return node;
+        }
+
+        void addPattern( String pattern )
+        {
+            if ( this.patterns == null )
+            {
+                this.patterns = new String[] { pattern };
+            }
+            else
+            {
+                this.patterns = Arrays.copyOf( this.patterns, this.patterns.length + 1 );
+                this.patterns[this.patterns.length - 1] = pattern;
+            }
+        }
+
+        /**
+         * Computes the failure links of the trie rooted at this node, breadth first.
+         *
+         * @return this node.
+         */
+        Node link()
+        {
+            LinkedList<Node> queue = new LinkedList<>();
+            for ( Node child : this.children )
+            {
+                child.failure = this;
+                queue.add( child );
+            }
+
+            while ( !queue.isEmpty() )
+            {
+                Node node = queue.removeFirst();
+                for ( int k = 0; k < node.keys.length; k++ )
+                {
+                    Node child = node.children[k];
+                    Node failure = node.failure;
+                    Node next = failure.child( node.keys[k] );
+                    while ( next == null && failure != this )
+                    {
+                        failure = failure.failure;
+                        next = failure.child( node.keys[k] );
+                    }
+                    child.failure = ( next == null ) ? this : next;
+                    child.terminal |= child.failure.terminal;
+                    queue.add( child );
+                }
+            }
+
+            return this;
+        }
+    }
+}
@@ -22,7 +22,6 @@ package org.apache.maven.doxia.linkcheck.validation;
 import java.io.File;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.Locale;
 
 import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
 import org.codehaus.plexus.util.IOUtil;
@@ -39,18 +38,47 @@ import org.codehaus.plexus.util.WriterFactory;
 public final class FileLinkValidator
     implements LinkValidator
 {
+    /** The page of a directory. */
+    private static final String INDEX_PAGE = "index.html";
+
     private String encoding;
 
+    /** The root directory of the site, or null if the site absolute links are not checked locally. */
+    private File siteDirectory;
+
+    /** The base URL of the site without trailing slash, may be null. */
+    private String baseURL;
+
     /**
      * @param encoding the encoding file used. If empty, using UTF-8.
      */
     public FileLinkValidator( String encoding )
+    {
+        this( encoding, null, null );
+    }
+
+    /**
+     * Creates a validator also checking the links starting with '/' or with the base URL against the local site,
+     * instead of leaving them to the HTTP validators.
+     *
+     * @param encoding the encoding file used. If empty, using UTF-8.
+     * @param siteDirectory the root directory of the site, or null to leave the site absolute links to the HTTP
+     * validators.
+     * @param baseURL the base URL of the site, may be null.
+     * @since 1.3
+     */
+    public FileLinkValidator( String encoding, File siteDirectory, String baseURL )
     {
         if ( StringUtils.isEmpty( encoding ) )
         {
             encoding = WriterFactory.UTF_8;
         }
         this.encoding = encoding;
+        this.siteDirectory = siteDirectory;
+        if ( StringUtils.isNotEmpty( baseURL ) )
+        {
+            this.baseURL = baseURL.endsWith( "/" ) ? baseURL.substring( 0, baseURL.length() - 1 ) : baseURL;
+        }
     }
 
     /** {@inheritDoc} */
@@ -67,22 +95,46 @@ public final class FileLinkValidator
         return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, "doesn't exist." );
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc} The key is the absolute path of the file, followed by the anchor of the link if any: it is
+     * computed without reading the file.
+     */
     @Override
     public Object getResourceKey( LinkValidationItem lvi )
     {
         String link = lvi.getLink();
+        File dir = lvi.getSource().getParentFile();
 
+        String sitePath = toSitePath( link );
+        if ( sitePath != null )
+        {
+            link = sitePath;
+            dir = siteDirectory;
+        }
         // If we find an http(s) link or a mail link, it's not good
         // links starting with "/" should have a base URL pre-pended and be handled by OnlineHTTPLinkValidator.
-        if ( link.toLowerCase( Locale.ENGLISH ).startsWith( "http://" )
-            || link.toLowerCase( Locale.ENGLISH ).startsWith( "https://" ) || link.indexOf( '@' ) != -1
-            || link.startsWith( "/" ) )
+        else if ( link.regionMatches( true, 0, "http://", 0, 7 ) || link.regionMatches( true, 0, "https://", 0, 8 )
+            || link.indexOf( '@' ) != -1 || link.startsWith( "/" ) )
         {
             return null;
         }
 
-        return getFile( lvi ).getAbsolutePath();
+        String anchor = "";
+        int hashPos = link.indexOf( '#' );
+        if ( hashPos != -1 )
+        {
+            anchor = link.substring( hashPos );
+            link = link.substring( 0, hashPos );
+        }
+        else if ( link.indexOf( '?' ) != -1 )
+        {
+            link = link.substring( 0, link.indexOf( '?' ) );
+        }
+
+        // If the link was just #fred or ?param=something, then the file is the file it came from
+        File f = ( link.trim().length() == 0 ) ? lvi.getSource() : new File( dir, link );
+
+        return f.getAbsolutePath() + anchor;
     }
 
     // ----------------------------------------------------------------------
@@ -98,6 +150,14 @@ public final class FileLinkValidator
     private File getFile( LinkValidationItem lvi )
     {
         String link = lvi.getLink();
+        File dir = lvi.getSource().getParentFile();
+
+        String sitePath = toSitePath( link );
+        if ( sitePath != null )
+        {
+            link = sitePath;
+            dir = siteDirectory;
+        }
 
         if ( link.indexOf( '#' ) != -1 )
         {
@@ -119,10 +179,10 @@ public final class FileLinkValidator
             }
 
             // the anchor exists?
-            String content = read( new File( lvi.getSource().getParentFile(), link ), encoding );
+            String content = read( new File( dir, link ), encoding );
             if ( Anchors.matchesAnchor( content, anchor ) )
             {
-                return new File( lvi.getSource().getParentFile(), link );
+                return new File( dir, link );
             }
 
             // return an invalid file
@@ -141,7 +201,67 @@ public final class FileLinkValidator
             }
         }
 
-        return new File( lvi.getSource().getParentFile(), link );
+        return new File( dir, link );
+    }
+
+    /**
+     * @return <code>true</code> if the site absolute links are checked locally, i.e. the links starting with '/'
+     * or with the base URL.
+     */
+    boolean isSiteLocal()
+    {
+        return siteDirectory != null;
+    }
+
+    /**
+     * Maps a link starting with '/' or with the base URL to a path relative to the site directory.
+     *
+     * @param link a link.
+     * @return the path of the link in the site, with its query and anchor, or null if the link is not a site
+     * absolute link or if these links are not checked locally.
+     */
+    private String toSitePath( String link )
+    {
+        if ( siteDirectory == null )
+        {
+            return null;
+        }
+
+        String path;
+        if ( link.startsWith( "/" ) && !link.startsWith( "//" ) )
+        {
+            path = link.substring( 1 );
+        }
+        else if ( baseURL != null && link.regionMatches( true, 0, baseURL, 0, baseURL.length() ) )
+        {
+            path = link.substring( baseURL.length() );
+            if ( path.startsWith( "/" ) )
+            {
+                path = path.substring( 1 );
+            }
+            else if ( path.length() > 0 && path.charAt( 0 ) != '#' && path.charAt( 0 ) != '?' )
+            {
+                // e.g. http://example.org/site-old for http://example.org/site
+                return null;
+            }
+        }
+        else
+        {
+            return null;
+        }
+
+        // the directories are served by their index page
+        int end = 0;
+        while ( end < path.length() && path.charAt( end ) != '#' && path.charAt( end ) != '?' )
+        {
+            end++;
+        }
+        if ( end == 0 || path.charAt( end - 1 ) == '/' )
+        {
+            path = path.substring( 0, end ) + INDEX_PAGE + path.substring( end );
+        }
+
+        return path;
     }
 
     /**
@@ -33,6 +33,15 @@ public class HTTPLinkValidationResult
     /** The httpStatusCode. */
     private final int httpStatusCode;
 
+    /** The <code>ETag</code> response header, if any. */
+    private final String etag;
+
+    /** The <code>Last-Modified</code> response header, if any. */
+    private final String lastModified;
+
+    /** The <code>Location</code> response header of a redirect, if any. */
+    private final String location;
+
     /**
      * Constructor: initializes status, persistent and errorMessage.
      * Using this constructor, the HTTP status code is by default <code>-1</code>.
@@ -43,9 +52,7 @@ public class HTTPLinkValidationResult
      */
     public HTTPLinkValidationResult( int stat, boolean persistent, String message )
     {
-        super( stat, persistent, message );
-
-        this.httpStatusCode = -1;
+        this( stat, persistent, -1, message );
     }
 
     /**
@@ -57,10 +64,77 @@ public class HTTPLinkValidationResult
      * @param message The errorMessage.
      */
     public HTTPLinkValidationResult( int stat, boolean persistent, int httpStatusCode, String message )
+    {
+        this( stat, persistent, httpStatusCode, message, null, null );
+    }
+
+    /**
+     * Constructor: initializes status, persistent, httpStatusCode, errorMessage and the cache validators
+     * of the response.
+     *
+     * @param stat The status.
+     * @param persistent The persistent.
+     * @param httpStatusCode The httpStatusCode returned.
+     * @param message The errorMessage.
+     * @param etag The <code>ETag</code> response header, may be null.
+     * @param lastModified The <code>Last-Modified</code> response header, may be null.
+     */
+    public HTTPLinkValidationResult( int stat, boolean persistent, int httpStatusCode, String message, String etag,
+                                     String lastModified )
+    {
+        this( stat, persistent, httpStatusCode, message, etag, lastModified, null );
+    }
+
+    /**
+     * Constructor: initializes status, persistent, httpStatusCode, errorMessage, the cache validators
+     * and the redirect location of the response.
+     *
+     * @param stat The status.
+     * @param persistent The persistent.
+     * @param httpStatusCode The httpStatusCode returned.
+     * @param message The errorMessage.
+     * @param etag The <code>ETag</code> response header, may be null.
+     * @param lastModified The <code>Last-Modified</code> response header, may be null.
+     * @param location The <code>Location</code> response header, may be null.
+     */
+    public HTTPLinkValidationResult( int stat, boolean persistent, int httpStatusCode, String message, String etag,
+                                     String lastModified, String location )
     {
         super( stat, persistent, message );
 
         this.httpStatusCode = httpStatusCode;
+
+        this.etag = etag;
+
+        this.lastModified = lastModified;
+
+        this.location = location;
+    }
+
+    /**
+     * Constructor: restores a cached result with its creation time.
+     *
+     * @param stat The status.
+     * @param persistent The persistent.
+     * @param httpStatusCode The httpStatusCode returned.
+     * @param message The errorMessage.
+     * @param etag The <code>ETag</code> response header, may be null.
+     * @param lastModified The <code>Last-Modified</code> response header, may be null.
+     * @param location The <code>Location</code> response header, may be null.
+     * @param timestamp The creation time, in milliseconds since the epoch.
+     */
+    HTTPLinkValidationResult( int stat, boolean persistent, int httpStatusCode, String message, String etag,
+                              String lastModified, String location, long timestamp )
+    {
+        super( stat, persistent, message, timestamp );
+
+        this.httpStatusCode = httpStatusCode;
+
+        this.etag = etag;
+
+        this.lastModified = lastModified;
+
+        this.location = location;
     }
 
     /** {@inheritDoc} */
@@ -80,6 +154,73 @@ public class HTTPLinkValidationResult
         return this.httpStatusCode;
     }
 
+    /**
+     * Returns the <code>ETag</code> response header.
+     *
+     * @return the etag, or null if none was sent.
+     */
+    public String getEtag()
+    {
+        return this.etag;
+    }
+
+    /**
+     * Returns the <code>Last-Modified</code> response header.
+     *
+     * @return the last modification date, or null if none was sent.
+     */
+    public String getLastModified()
+    {
+        return this.lastModified;
+    }
+
+    /**
+     * Returns the <code>Location</code> response header of a redirect.
+     *
+     * @return the location, or null if none was sent.
+     */
+    public String getLocation()
+    {
+        return this.location;
+    }
+
+    /**
+     * Whether this result can be revalidated with a conditional request.
+     *
+     * @return <code>true</code> if an <code>ETag</code> or a <code>Last-Modified</code> header was sent.
+     */
+    public boolean isRevalidatable()
+    {
+        return this.etag != null || this.lastModified != null;
+    }
+
+    /**
+     * Whether the HTTP status code of this result is one of the given excluded ones, the way the excluded HTTP
+     * statuses of the report have always been matched: an excluded code matches if it appears in the status code.
+     *
+     * @param excludedStatuses the excluded HTTP status codes, may be null.
+     * @return <code>true</code> if the result has an HTTP status code and it is excluded.
+     * @since 1.3
+     */
+    public boolean hasExcludedStatus( int[] excludedStatuses )
+    {
+        if ( this.httpStatusCode <= 0 || excludedStatuses == null )
+        {
+            return false;
+        }
+
+        String status = String.valueOf( this.httpStatusCode );
+        for ( int excluded : excludedStatuses )
+        {
+            if ( status.contains( String.valueOf( excluded ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     /** {@inheritDoc} */
     @Override
     public String toString()
@@ -88,6 +229,18 @@ public class HTTPLinkValidationResult
 
         sb.append( '\n' );
         sb.append( "httpStatusCode=" ).append( this.httpStatusCode );
+        if ( this.etag != null )
+        {
+            sb.append( '\n' ).append( "etag=" ).append( this.etag );
+        }
+        if ( this.lastModified != null )
+        {
+            sb.append( '\n' ).append( "lastModified=" ).append( this.lastModified );
+        }
+        if ( this.location != null )
+        {
+            sb.append( '\n' ).append( "location=" ).append( this.location );
+        }
 
         return sb.toString();
     }
@@ -19,8 +19,6 @@ package org.apache.maven.doxia.linkcheck.validation;
  * under the License.
  */
 
-import java.util.Locale;
-
 /**
  * Checks links which are normal URLs.
  *
@@ -36,13 +34,13 @@ public abstract class HTTPLinkValidator
     {
         String link = lvi.getLink();
 
-        if ( !link.toLowerCase( Locale.ENGLISH ).startsWith( "http://" )
-            && !link.toLowerCase( Locale.ENGLISH ).startsWith( "https://" ) && !link.startsWith( "/" ) )
+        if ( !link.regionMatches( true, 0, "http://", 0, 7 ) && !link.regionMatches( true, 0, "https://", 0, 8 )
+            && !link.startsWith( "/" ) )
         {
             return null;
         }
 
-        int hashPos = link.indexOf( "#" );
+        int hashPos = link.indexOf( '#' );
 
         if ( hashPos != -1 )
         {
@@ -0,0 +1,176 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-host circuit breaker. After a number of consecutive connection failures or timeouts for a host, the circuit
+ * opens and requests to that host are refused until a cooldown has elapsed. A single probe is then let through:
+ * if it succeeds the circuit closes, otherwise it opens again for another cooldown.
+ *
+ * @since 1.3
+ */
+class HostCircuitBreaker
+{
+    /** The number of consecutive failures opening the circuit, zero to disable. */
+    private final int threshold;
+
+    /** The time in milliseconds an open circuit waits before a probe. */
+    private final long cooldown;
+
+    /** The state per host. */
+    private final Map<String, HostState> hosts = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param threshold the number of consecutive failures opening the circuit, zero or negative to disable.
+     * @param cooldown the time in milliseconds before an open circuit is probed again.
+     */
+    HostCircuitBreaker( int threshold, long cooldown )
+    {
+        this.threshold = threshold;
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * Whether a request to the given host may be sent now. If the circuit of the host is open and its cooldown
+     * has elapsed, the caller is granted the single probe request.
+     *
+     * @param host the host name, may be null.
+     * @return <code>false</code> if the request should fail fast.
+     */
+    synchronized boolean allowRequest( String host )
+    {
+        if ( threshold <= 0 || host == null )
+        {
+            return true;
+        }
+
+        HostState state = hosts.get( key( host ) );
+        if ( state == null || state.openedAt < 0 )
+        {
+            return true;
+        }
+
+        if ( state.probing || System.currentTimeMillis() - state.openedAt < cooldown )
+        {
+            return false;
+        }
+
+        state.probing = true;
+
+        return true;
+    }
+
+    /**
+     * Releases the probe request granted by {@link #allowRequest(String)} when it ends without a response nor a
+     * failure, for instance when the host is not resolved or the rate limit is not acquired, so that another
+     * request may probe the host.
+     *
+     * @param host the host name, may be null.
+     */
+    synchronized void releaseProbe( String host )
+    {
+        HostState state = ( threshold <= 0 || host == null ) ? null : hosts.get( key( host ) );
+        if ( state != null )
+        {
+            state.probing = false;
+        }
+    }
+
+    /**
+     * Records a response received from the given host, which closes its circuit.
+     *
+     * @param host the host name, may be null.
+     */
+    synchronized void recordSuccess( String host )
+    {
+        if ( threshold <= 0 || host == null )
+        {
+            return;
+        }
+
+        hosts.remove( key( host ) );
+    }
+
+    /**
+     * Records a connection failure or timeout for the given host.
+     *
+     * @param host the host name, may be null.
+     * @return <code>true</code> if the circuit of the host is open after this failure.
+     */
+    synchronized boolean recordFailure( String host )
+    {
+        if ( threshold <= 0 || host == null )
+        {
+            return false;
+        }
+
+        String key = key( host );
+        HostState state = hosts.get( key );
+        if ( state == null )
+        {
+            state = new HostState();
+            hosts.put( key, state );
+        }
+
+        state.failures++;
+        state.probing = false;
+        if ( state.openedAt >= 0 || state.failures >= threshold )
+        {
+            state.openedAt = System.currentTimeMillis();
+        }
+
+        return state.openedAt >= 0;
+    }
+
+    /**
+     * @param host the host name.
+     * @return <code>true</code> if the circuit of the given host is currently open.
+     */
+    synchronized boolean isOpen( String host )
+    {
+        HostState state = ( host == null ) ? null : hosts.get( key( host ) );
+
+        return state != null && state.openedAt >= 0;
+    }
+
+    private static String key( String host )
+    {
+        return host.toLowerCase( Locale.ENGLISH );
+    }
+
+    /** The circuit state of a single host. */
+    private static class HostState
+    {
+        /** The number of consecutive failures. */
+        private int failures;
+
+        /** The time the circuit was (re)opened, or -1 if it is closed. */
+        private long openedAt = -1;
+
+        /** Whether a probe request is in flight. */
+        private boolean probing;
+    }
+}
@@ -0,0 +1,294 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The requests sent to a single host during an online run: a latency histogram, and the counts of
+ * status codes, timeouts, connection failures, redirects and bytes read.
+ *
+ * @since 1.3
+ */
+public class HostMetrics
+{
+    /** The upper bounds in milliseconds of the latency histogram buckets, the last bucket being unbounded. */
+    private static final long[] LATENCY_BOUNDS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000 };
+
+    /** The host name. */
+    private final String host;
+
+    /** The number of requests per latency bucket. */
+    private final long[] latencyCounts = new long[LATENCY_BOUNDS.length + 1];
+
+    /** The number of responses per status code. */
+    private final Map<Integer, Long> statusCounts = new TreeMap<>();
+
+    private long requests;
+
+    private long totalLatency;
+
+    private long maxLatency;
+
+    private long timeouts;
+
+    private long connectionFailures;
+
+    private long errors;
+
+    private long redirects;
+
+    private long bytesRead;
+
+    /**
+     * @param host the host name.
+     */
+    public HostMetrics( String host )
+    {
+        this.host = host;
+    }
+
+    /**
+     * Records a response.
+     *
+     * @param statusCode the status code of the response.
+     * @param latency the time in milliseconds from sending the request to the end of the response.
+     * @param bytes the number of bytes of the response body.
+     */
+    synchronized void recordResponse( int statusCode, long latency, long bytes )
+    {
+        recordLatency( latency );
+
+        Long count = statusCounts.get( statusCode );
+        statusCounts.put( statusCode, ( count == null ) ? 1L : count + 1 );
+
+        if ( statusCode >= 300 && statusCode < 400 && statusCode != 304 )
+        {
+            redirects++;
+        }
+
+        bytesRead += bytes;
+    }
+
+    /**
+     * Records a request which did not get a response in time.
+     *
+     * @param latency the time in milliseconds waited.
+     */
+    synchronized void recordTimeout( long latency )
+    {
+        recordLatency( latency );
+        timeouts++;
+    }
+
+    /**
+     * Records a request which could not connect to the host.
+     *
+     * @param latency the time in milliseconds until the failure.
+     */
+    synchronized void recordConnectionFailure( long latency )
+    {
+        recordLatency( latency );
+        connectionFailures++;
+    }
+
+    /**
+     * Records a request which failed for another reason, e.g. a protocol error.
+     *
+     * @param latency the time in milliseconds until the failure.
+     */
+    synchronized void recordError( long latency )
+    {
+        recordLatency( latency );
+        errors++;
+    }
+
+    private void recordLatency( long latency )
+    {
+        requests++;
+        totalLatency += latency;
+        maxLatency = Math.max( maxLatency, latency );
+
+        int bucket = 0;
+        while ( bucket < LATENCY_BOUNDS.length && latency > LATENCY_BOUNDS[bucket] )
+        {
+            bucket++;
+        }
+        latencyCounts[bucket]++;
+    }
+
+    /**
+     * @return the host name.
+     */
+    public String getHost()
+    {
+        return host;
+    }
+
+    /**
+     * @return the number of requests sent.
+     */
+    public synchronized long getRequests()
+    {
+        return requests;
+    }
+
+    /**
+     * @return the number of requests which timed out.
+     */
+    public synchronized long getTimeouts()
+    {
+        return timeouts;
+    }
+
+    /**
+     * @return the number of requests which could not connect.
+     */
+    public synchronized long getConnectionFailures()
+    {
+        return connectionFailures;
+    }
+
+    /**
+     * @return the number of requests which failed for another reason.
+     */
+    public synchronized long getErrors()
+    {
+        return errors;
+    }
+
+    /**
+     * @return the number of redirect responses.
+     */
+    public synchronized long getRedirects()
+    {
+        return redirects;
+    }
+
+    /**
+     * @return the number of response body bytes read.
+     */
+    public synchronized long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * @return the number of responses per status code.
+     */
+    public synchronized Map<Integer, Long> getStatusCounts()
+    {
+        return new TreeMap<>( statusCounts );
+    }
+
+    /**
+     * @return the mean latency in milliseconds.
+     */
+    public synchronized long getMeanLatency()
+    {
+        return ( requests == 0 ) ? 0 : totalLatency / requests;
+    }
+
+    /**
+     * @return the maximum latency in milliseconds.
+     */
+    public synchronized long getMaxLatency()
+    {
+        return maxLatency;
+    }
+
+    /**
+     * @return the upper bounds in milliseconds of the latency histogram buckets, the last bucket of the
+     * histogram being unbounded.
+     */
+    public static long[] getLatencyBounds()
+    {
+        return LATENCY_BOUNDS.clone();
+    }
+
+    /**
+     * @return the number of requests per latency bucket.
+     * @see #getLatencyBounds()
+     */
+    public synchronized long[] getLatencyHistogram()
+    {
+        return latencyCounts.clone();
+    }
+
+    /**
+     * Estimates a latency percentile from the histogram, as the upper bound of the bucket holding it.
+     *
+     * @param percentile the percentile, between 0 and 100.
+     * @return the estimated percentile in milliseconds, never more than the maximum latency.
+     */
+    public synchronized long getLatencyPercentile( double percentile )
+    {
+        long rank = (long) Math.ceil( percentile / 100 * requests );
+        long seen = 0;
+        for ( int i = 0; i < LATENCY_BOUNDS.length; i++ )
+        {
+            seen += latencyCounts[i];
+            if ( seen >= rank )
+            {
+                return Math.min( LATENCY_BOUNDS[i], maxLatency );
+            }
+        }
+
+        return maxLatency;
+    }
+
+    /**
+     * Adds the given metrics of the same host to these ones.
+     *
+     * @param other other metrics.
+     */
+    synchronized void merge( HostMetrics other )
+    {
+        synchronized ( other )
+        {
+            requests += other.requests;
+            totalLatency += other.totalLatency;
+            maxLatency = Math.max( maxLatency, other.maxLatency );
+            timeouts += other.timeouts;
+            connectionFailures += other.connectionFailures;
+            errors += other.errors;
+            redirects += other.redirects;
+            bytesRead += other.bytesRead;
+            for ( int i = 0; i < latencyCounts.length; i++ )
+            {
+                latencyCounts[i] += other.latencyCounts[i];
+            }
+            for ( Map.Entry<Integer, Long> entry : other.statusCounts.entrySet() )
+            {
+                Long count = statusCounts.get( entry.getKey() );
+                statusCounts.put( entry.getKey(), ( count == null ) ? entry.getValue() : count + entry.getValue() );
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return host + ": " + requests + " request(s), mean " + getMeanLatency() + " ms, p99 "
+            + getLatencyPercentile( 99 ) + " ms, max " + maxLatency + " ms, " + timeouts + " timeout(s), "
+            + connectionFailures + " connection failure(s), statuses " + statusCounts;
+    }
+}
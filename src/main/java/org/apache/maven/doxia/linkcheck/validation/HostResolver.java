@@ -0,0 +1,149 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A run scoped DNS cache, resolving host names in parallel ahead of validation.
+ * Resolving a host also warms the JVM address cache used when connecting to it.
+ *
+ * @since 1.3
+ */
+class HostResolver
+{
+    /** Log for debug output. */
+    private static final Log LOG = LogFactory.getLog( HostResolver.class );
+
+    /** The addresses per lower case host name, an empty array if the host could not be resolved. */
+    private final Map<String, InetAddress[]> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves the given host names in parallel. Hosts not resolved within the timeout are left unknown.
+     *
+     * @param hosts the host names to resolve.
+     * @param threads the maximum number of concurrent lookups.
+     * @param timeout the time in milliseconds to wait for all lookups.
+     */
+    void resolveAll( Collection<String> hosts, int threads, long timeout )
+    {
+        List<Callable<Void>> lookups = new ArrayList<>();
+        for ( String host : hosts )
+        {
+            final String key = host.toLowerCase( Locale.ENGLISH );
+            if ( addresses.containsKey( key ) )
+            {
+                continue;
+            }
+
+            lookups.add( new Callable<Void>()
+            {
+                @Override
+                public Void call()
+                {
+                    resolve( key );
+                    return null;
+                }
+            } );
+        }
+
+        if ( lookups.isEmpty() )
+        {
+            return;
+        }
+
+        ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( threads, lookups.size() ), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread( Runnable r )
+                {
+                    Thread t = new Thread( r, "linkcheck-dns" );
+                    t.setDaemon( true );
+                    return t;
+                }
+            } );
+        try
+        {
+            executor.invokeAll( lookups, timeout, TimeUnit.MILLISECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Resolved " + lookups.size() + " host(s) in advance." );
+        }
+    }
+
+    /**
+     * @param host a host name.
+     * @return <code>true</code> if the host is known not to resolve.
+     */
+    boolean isUnresolvable( String host )
+    {
+        if ( host == null )
+        {
+            return false;
+        }
+
+        InetAddress[] resolved = addresses.get( host.toLowerCase( Locale.ENGLISH ) );
+
+        return resolved != null && resolved.length == 0;
+    }
+
+    private void resolve( String host )
+    {
+        try
+        {
+            addresses.put( host, InetAddress.getAllByName( host ) );
+        }
+        catch ( UnknownHostException e )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Unknown host: " + host );
+            }
+
+            addresses.put( host, new InetAddress[0] );
+        }
+    }
+}
@@ -46,6 +46,9 @@ public class LinkValidationResult
     /** The error message. */
     private final String errorMessage;
 
+    /** The time this result was created, in milliseconds since the epoch. */
+    private final long timestamp;
+
     /**
      * Returns the persistent property.
      *
@@ -76,6 +79,16 @@ public class LinkValidationResult
         return this.errorMessage;
     }
 
+    /**
+     * Returns the time this result was created. Results cached by older versions return <code>0</code>.
+     *
+     * @return the creation time, in milliseconds since the epoch.
+     */
+    public long getTimestamp()
+    {
+        return this.timestamp;
+    }
+
     /**
      * Constructor: initializes status, persistent and errorMessage.
      *
@@ -84,12 +97,37 @@ public class LinkValidationResult
      * @param message The errorMessage.
      */
     public LinkValidationResult( int stat, boolean persistent, String message )
+    {
+        this( stat, persistent, message, System.currentTimeMillis() );
+    }
+
+    /**
+     * Constructor: initializes status, persistent, errorMessage and the creation time, to restore a cached result.
+     *
+     * @param stat The status.
+     * @param persistent The persistent.
+     * @param message The errorMessage.
+     * @param timestamp The creation time, in milliseconds since the epoch.
+     */
+    LinkValidationResult( int stat, boolean persistent, String message, long timestamp )
     {
         this.status = stat;
 
         this.persistent = persistent;
 
         this.errorMessage = message;
+
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns the errorMessage as given to the constructor, which subclasses may decorate.
+     *
+     * @return the errorMessage.
+     */
+    String getMessage()
+    {
+        return this.errorMessage;
     }
 
     /** {@inheritDoc} */
@@ -27,20 +27,42 @@ import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InvalidClassException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
  * A LinkValidator manager which manages validators with a cache.
@@ -59,14 +81,169 @@ public class LinkValidatorManager
     /** Log for debug output. */
     private static final Log LOG = LogFactory.getLog( LinkValidatorManager.class );
 
+    /** The patterns starting with a wildcard, matched against relative links. */
+    private static final Pattern LEADING_WILDCARD = Pattern.compile( "\\*+/?.*" );
+
+    /** The number of threads refreshing expired results in the background. */
+    private static final int REFRESH_THREADS = 2;
+
+    /** The time in minutes to wait for background refreshes before the cache is saved. */
+    private static final int REFRESH_AWAIT_MINUTES = 5;
+
+    /** The number of outdated records tolerated in the cache file on top of one per live record. */
+    private static final int COMPACTION_SLACK = 1024;
+
+    /** The default maximum number of results of local files kept in memory. */
+    public static final int DEFAULT_MAX_LOCAL_RESULTS = 100000;
+
+    /** The default maximum number of other results kept in memory but not stored in the cache file. */
+    public static final int DEFAULT_MAX_REMOTE_RESULTS = 10000;
+
+    /** The kind of the links starting with <code>http://</code> or <code>https://</code>. */
+    private static final int HTTP_LINK = 0;
+
+    /** The kind of the links starting with '/'. */
+    private static final int ABSOLUTE_LINK = 1;
+
+    /** The kind of the other links, i.e. relative ones. */
+    private static final int LOCAL_LINK = 2;
+
+    /** Added to the kind of the links holding an '@', which the mailto validator claims. */
+    private static final int AT_SIGN = 3;
+
+    /** The number of kinds of links. */
+    private static final int LINK_KINDS = 6;
+
     /** validators. */
     private List<LinkValidator> validators = new LinkedList<>();
 
+    /**
+     * The validators which may be responsible for each kind of link, in order, computed once for the validators
+     * added, so that the keys of the other validators are not computed per link.
+     */
+    private transient volatile LinkValidator[][] dispatch;
+
     /** excludes. */
     private String[] excludedLinks = new String[0];
 
+    /** The excludes compiled, lazily. */
+    private transient volatile ExcludedLinksMatcher excludedLinksMatcher;
+
     /** cache. */
-    private Map<Object, LinkValidationResult> cache = new HashMap<>();
+    private volatile Map<Object, LinkValidationResult> cache = new ConcurrentHashMap<>();
+
+    /** The maximum number of results of local files kept in memory, negative for no limit. */
+    private int maxLocalResults = DEFAULT_MAX_LOCAL_RESULTS;
+
+    /** The maximum number of other results kept in memory but not stored in the cache file, negative for no limit. */
+    private int maxRemoteResults = DEFAULT_MAX_REMOTE_RESULTS;
+
+    /** The results of the local files, which are never stored in the cache file. */
+    private transient ResultLruCache localResults = new ResultLruCache( DEFAULT_MAX_LOCAL_RESULTS );
+
+    /** The other results which are not stored in the cache file. */
+    private transient ResultLruCache remoteResults = new ResultLruCache( DEFAULT_MAX_REMOTE_RESULTS );
+
+    /** The redirect hops shared by the online validators, per requested link. */
+    private Map<String, HTTPLinkValidationResult> redirects = new ConcurrentHashMap<>();
+
+    /** Whether results loaded from the cache file are revalidated before being used. */
+    private boolean revalidateCache;
+
+    /** Keys of results loaded from the cache file which have been revalidated in this run. */
+    private transient Set<Object> confirmedKeys =
+        Collections.newSetFromMap( new ConcurrentHashMap<Object, Boolean>() );
+
+    /** The time to live in milliseconds of cached results which are not errors, negative if they never expire. */
+    private long successTtl = -1;
+
+    /** The time to live in milliseconds of cached errors, zero or negative if they are not kept across runs. */
+    private long failureTtl = -1;
+
+    /** The time to live in milliseconds of cached results per host, overriding the default ones. */
+    private Map<String, Long> hostTtls = Collections.emptyMap();
+
+    /** The maximum number of expired results refreshed in the background per run. */
+    private int revalidationBudget = 50;
+
+    /** Whether the links referenced by the most pages are validated first. */
+    private boolean popularityOrder;
+
+    /** The number of broken external links tolerated by the up-front validation, negative for no limit. */
+    private int errorBudget = -1;
+
+    /** The HTTP status codes of the errors not counted in the error budget. */
+    private int[] ignoredHttpStatusErrors = new int[0];
+
+    /** The broken external links found by the up-front validation. */
+    private final AtomicInteger errors = new AtomicInteger();
+
+    /** Why the validation was aborted, null if it was not. */
+    private volatile String abortReason;
+
+    /** The number of background refreshes scheduled in this run. */
+    private transient int refreshesScheduled;
+
+    /** Keys whose expired result is being refreshed in the background. */
+    private transient Set<Object> refreshingKeys =
+        Collections.newSetFromMap( new ConcurrentHashMap<Object, Boolean>() );
+
+    /** Refreshes expired results in the background, lazily created. */
+    private transient ExecutorService refresher;
+
+    /** The loaded cache file the new results are appended to, null if none. */
+    private transient volatile CacheFile cacheFile;
+
+    /** The redirect hops read from the cache file, to only append the new ones. */
+    private transient Map<String, HTTPLinkValidationResult> storedRedirects = new HashMap<>();
+
+    /** Whether the results are cached off-heap, in a memory-mapped index of the cache file. */
+    private boolean offHeapCache;
+
+    /** The off-heap index of the results, null if none. */
+    private transient MappedResultMap<Object, LinkValidationResult> resultIndex;
+
+    /** The off-heap index of the redirect hops, null if none. */
+    private transient MappedResultMap<String, HTTPLinkValidationResult> redirectIndex;
+
+    /**
+     * Guards the drop of the off-heap indexes, apart from the monitor of the manager which is held while waiting
+     * for the background refreshes, themselves possibly dropping the indexes.
+     */
+    private final transient Object indexLock = new Object();
+
+    /** The time the cache file was loaded. */
+    private transient long loadTime;
+
+    /** The loading of the cache file in the background, null if none is pending. */
+    private transient volatile FutureTask<Void> cacheLoading;
+
+    /** The distinct links scheduled for the up-front validation, per resource key, in the order of the pages. */
+    private transient Map<Object, ReferencedLink> scheduledLinks = new LinkedHashMap<>();
+
+    /** The resource keys of the links of the online validators which are not scheduled. */
+    private transient Set<Object> unscheduledKeys = new HashSet<>();
+
+    /**
+     * The links validated up-front whose results are not stored, per resource key, kept until the pages
+     * referencing them are validated, as the transient results may be evicted before.
+     */
+    private transient Map<Object, ReferencedLink> pinnedLinks = new ConcurrentHashMap<>();
+
+    /** The links served from the cache. */
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    /** The resource keys of the links validated up-front, until their first item is served. */
+    private transient Set<Object> batchedKeys = Collections.newSetFromMap( new ConcurrentHashMap<Object, Boolean>() );
+
+    /** The links which were not cached and were validated. */
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    /** The links which were not cached and were excluded. */
+    private final AtomicLong excludedLinkCount = new AtomicLong();
+
+    /** The validations done per validator. */
+    private transient ConcurrentMap<LinkValidator, ValidatorMetrics> validatorMetrics = new ConcurrentHashMap<>();
 
     /**
      * Returns the list of validators.
@@ -90,229 +267,1901 @@ public class LinkValidatorManager
         return this.excludedLinks;
     }
 
-    /**
-     * Sets the excludedLinks.
-     * Could contains a link, i.e. <code>http:&#47;&#47;maven.apache.org/</code>,
-     * or pattern links i.e. <code>http:&#47;&#47;maven.apache.org&#47;**&#47;*.html</code>
-     *
-     * @param excl The excludes to set.
-     */
-    public void setExcludedLinks( String[] excl )
-    {
-        this.excludedLinks = excl;
+    /**
+     * Sets the excludedLinks.
+     * Could contains a link, i.e. <code>http:&#47;&#47;maven.apache.org/</code>,
+     * or pattern links i.e. <code>http:&#47;&#47;maven.apache.org&#47;**&#47;*.html</code>
+     *
+     * @param excl The excludes to set.
+     */
+    public void setExcludedLinks( String[] excl )
+    {
+        this.excludedLinks = excl;
+        this.excludedLinksMatcher = null;
+    }
+
+    /**
+     * Whether results loaded from the cache file are revalidated before being used.
+     *
+     * @return <code>true</code> if cached results are revalidated.
+     */
+    public boolean isRevalidateCache()
+    {
+        return this.revalidateCache;
+    }
+
+    /**
+     * Sets whether results loaded from the cache file are revalidated, once per run, before being used.
+     * HTTP results are revalidated with conditional requests when the server sent <code>ETag</code> or
+     * <code>Last-Modified</code> headers, a <code>304 Not Modified</code> response confirming the cached result.
+     *
+     * @param revalidate <code>true</code> to revalidate cached results.
+     * @since 1.3
+     */
+    public void setRevalidateCache( boolean revalidate )
+    {
+        this.revalidateCache = revalidate;
+    }
+
+    /**
+     * Sets whether the results are cached off-heap, in a memory-mapped hash index next to the cache file, instead
+     * of being read in memory: the heap footprint then stays small with very large caches, and the index left by
+     * the previous run is used as it is when the cache file has not changed since. It is rebuilt from the cache
+     * file otherwise, e.g. after a run of another build sharing the cache file, and the results are read in memory
+     * while the index is used by another build. The results are moved to the heap if the index reaches its limit
+     * of 2 GB. Saving the cache releases the index, and empties the cache.
+     *
+     * @param offHeap <code>true</code> to cache the results off-heap, <code>false</code> by default.
+     * @since 1.3
+     */
+    public void setOffHeapCache( boolean offHeap )
+    {
+        this.offHeapCache = offHeap;
+    }
+
+    /**
+     * @return the maximum number of results of local files kept in memory, negative for no limit.
+     * @since 1.3
+     */
+    public int getMaxLocalResults()
+    {
+        return this.maxLocalResults;
+    }
+
+    /**
+     * Sets the maximum number of results of local files kept in memory. These results are never stored in the cache
+     * file, and the least recently used ones are evicted beyond this number: a local file is then checked again
+     * when it is linked anew.
+     *
+     * @param max the maximum number of results, negative for no limit, {@link #DEFAULT_MAX_LOCAL_RESULTS} by
+     * default.
+     * @since 1.3
+     */
+    public void setMaxLocalResults( int max )
+    {
+        this.maxLocalResults = max;
+        this.localResults = new ResultLruCache( max );
+    }
+
+    /**
+     * @return the maximum number of results of external links kept in memory but not stored in the cache file,
+     * negative for no limit.
+     * @since 1.3
+     */
+    public int getMaxRemoteResults()
+    {
+        return this.maxRemoteResults;
+    }
+
+    /**
+     * Sets the maximum number of results of external links kept in memory but not stored in the cache file, e.g.
+     * transient failures or offline results. The least recently used ones are evicted beyond this number. The
+     * results stored in the cache file are not bounded.
+     *
+     * @param max the maximum number of results, negative for no limit, {@link #DEFAULT_MAX_REMOTE_RESULTS} by
+     * default.
+     * @since 1.3
+     */
+    public void setMaxRemoteResults( int max )
+    {
+        this.maxRemoteResults = max;
+        this.remoteResults = new ResultLruCache( max );
+    }
+
+    /**
+     * Sets the time to live of cached results which are not errors, i.e. valid results and warnings. Expired valid
+     * results are still used, while they are refreshed in the background within the
+     * {@link #setRevalidationBudget(int) revalidation budget}. Expired warnings are validated again.
+     *
+     * @param ttl the time to live in milliseconds, negative if these results never expire (the default).
+     * @since 1.3
+     */
+    public void setSuccessTtl( long ttl )
+    {
+        this.successTtl = ttl;
+    }
+
+    /**
+     * Sets the time to live of cached errors. Errors are only stored in the cache file when this time to live is
+     * positive, so that a broken link is not remembered forever, and they are validated again once expired.
+     *
+     * @param ttl the time to live in milliseconds, zero or negative if errors are only kept for the current run
+     * (the default).
+     * @since 1.3
+     */
+    public void setFailureTtl( long ttl )
+    {
+        this.failureTtl = ttl;
+    }
+
+    /**
+     * Sets the time to live of cached results per host, overriding both the success and the failure ones.
+     * A key is either a host name, i.e. <code>maven.apache.org</code>, or a domain pattern matching all its
+     * sub-domains, i.e. <code>*.apache.org</code>.
+     *
+     * @param ttls the time to live in milliseconds per host, may be null.
+     * @since 1.3
+     */
+    public void setHostTtls( Map<String, Long> ttls )
+    {
+        Map<String, Long> map = new HashMap<>();
+        if ( ttls != null )
+        {
+            for ( Map.Entry<String, Long> entry : ttls.entrySet() )
+            {
+                if ( entry.getKey() != null && entry.getValue() != null )
+                {
+                    map.put( entry.getKey().toLowerCase( Locale.ENGLISH ), entry.getValue() );
+                }
+            }
+        }
+
+        this.hostTtls = map;
+    }
+
+    /**
+     * Sets the maximum number of expired valid results refreshed in the background per run.
+     * Expired results beyond the budget are used as they are and refreshed by a later run.
+     *
+     * @param budget the number of background refreshes, <code>50</code> by default.
+     * @since 1.3
+     */
+    public void setRevalidationBudget( int budget )
+    {
+        this.revalidationBudget = budget;
+    }
+
+    /**
+     * Sets whether {@link #validateLinks(Collection, int)} validates the links referenced by the most pages first,
+     * rather than in the order of the pages, so that the most visible breakages are found early.
+     *
+     * @param popular <code>true</code> to validate the most referenced links first, <code>false</code> by default.
+     * @since 1.3
+     */
+    public void setPopularityOrder( boolean popular )
+    {
+        this.popularityOrder = popular;
+    }
+
+    /**
+     * Sets the error budget of {@link #validateLinks(Collection, int)}. Once more broken links than the budget are
+     * found, the validation is aborted: see {@link #abort(String)}.
+     * This also resets the count of broken links, and the abort reason.
+     *
+     * @param budget the number of broken links tolerated, negative for no limit (the default).
+     * @param ignoredStatuses the HTTP status codes of the errors which are not counted, matched as the excluded
+     * statuses of the report: see {@link HTTPLinkValidationResult#hasExcludedStatus(int[])}. May be null.
+     * @since 1.3
+     */
+    public synchronized void setErrorBudget( int budget, int[] ignoredStatuses )
+    {
+        this.errorBudget = budget;
+        this.ignoredHttpStatusErrors = ( ignoredStatuses == null ) ? new int[0] : ignoredStatuses.clone();
+        this.errors.set( 0 );
+        this.abortReason = null;
+    }
+
+    /**
+     * Aborts the validation: the requests in flight are aborted, and the external links which are not cached are
+     * not validated anymore but reported as {@link OnlineHTTPLinkValidator#NOT_CHECKED_AFTER_ABORT}.
+     * Only the first reason is kept.
+     *
+     * @param reason why the validation is aborted.
+     * @since 1.3
+     */
+    public synchronized void abort( String reason )
+    {
+        if ( this.abortReason != null )
+        {
+            return;
+        }
+
+        this.abortReason = reason;
+        if ( LOG.isWarnEnabled() )
+        {
+            LOG.warn( "Aborting the link validation: " + reason );
+        }
+
+        setOnlineDeadline( System.currentTimeMillis(), OnlineHTTPLinkValidator.NOT_CHECKED_AFTER_ABORT );
+    }
+
+    /**
+     * @return why the validation was aborted, or null if it was not.
+     * @since 1.3
+     */
+    public String getAbortReason()
+    {
+        return this.abortReason;
+    }
+
+    /**
+     * Counts the given result of the up-front validation against the error budget, and aborts the validation once
+     * the budget is exceeded.
+     *
+     * @param result a result.
+     */
+    private void countError( LinkValidationResult result )
+    {
+        if ( this.errorBudget < 0 || result.getStatus() != LinkcheckFileResult.ERROR_LEVEL )
+        {
+            return;
+        }
+
+        if ( result instanceof HTTPLinkValidationResult
+            && ( (HTTPLinkValidationResult) result ).hasExcludedStatus( this.ignoredHttpStatusErrors ) )
+        {
+            return;
+        }
+
+        if ( this.errors.incrementAndGet() > this.errorBudget )
+        {
+            abort( "more than " + this.errorBudget + " broken link(s) found" );
+        }
+    }
+
+    /**
+     * Adds a LinkValidator to this manager.
+     *
+     * @param lv The LinkValidator to add.
+     */
+    public void addLinkValidator( LinkValidator lv )
+    {
+        if ( lv instanceof OnlineHTTPLinkValidator )
+        {
+            ( (OnlineHTTPLinkValidator) lv ).setRedirectCache( this.redirects );
+        }
+
+        this.validators.add( lv );
+        this.dispatch = null;
+    }
+
+    /**
+     * Prepares the validation of the given items, before any of them is validated: the online validators
+     * resolve the hosts of the links which are not already cached.
+     *
+     * @param items all the LinkValidationItems to be validated.
+     */
+    public void warmUp( Collection<LinkValidationItem> items )
+    {
+        awaitCache();
+
+        for ( LinkValidator lv : this.validators )
+        {
+            if ( !( lv instanceof OnlineHTTPLinkValidator ) )
+            {
+                continue;
+            }
+
+            List<String> links = new ArrayList<>();
+            for ( LinkValidationItem lvi : items )
+            {
+                if ( !mayBeResponsible( lv, getLinkKind( lvi.getLink() ) ) )
+                {
+                    continue;
+                }
+
+                Object resourceKey = lv.getResourceKey( lvi );
+                if ( resourceKey != null && !isCached( lv, resourceKey ) )
+                {
+                    links.add( lvi.getLink() );
+                }
+            }
+
+            ( (OnlineHTTPLinkValidator) lv ).warmUp( links );
+        }
+    }
+
+    /**
+     * Sets the deadline of the online validation. Once it is reached, the remaining external links are reported as
+     * {@link OnlineHTTPLinkValidator#NOT_CHECKED_WITHIN_BUDGET}, while the other links are still validated.
+     *
+     * @param time the time in milliseconds of the deadline, 0 or less for no deadline.
+     * @since 1.3
+     */
+    public void setOnlineDeadline( long time )
+    {
+        setOnlineDeadline( time, OnlineHTTPLinkValidator.NOT_CHECKED_WITHIN_BUDGET );
+    }
+
+    /**
+     * @param time the time in milliseconds of the deadline, 0 or less for no deadline.
+     * @param message the message of the external links not checked.
+     */
+    private void setOnlineDeadline( long time, String message )
+    {
+        for ( LinkValidator lv : this.validators )
+        {
+            if ( lv instanceof OnlineHTTPLinkValidator )
+            {
+                ( (OnlineHTTPLinkValidator) lv ).setDeadline( time, message );
+            }
+        }
+    }
+
+    /**
+     * Returns the usage of the connection pool of the online validator.
+     *
+     * @return a snapshot of the usage of the connection pool, or null if there is no online validator.
+     * @since 1.3
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics()
+    {
+        for ( LinkValidator lv : this.validators )
+        {
+            if ( lv instanceof OnlineHTTPLinkValidator )
+            {
+                return ( (OnlineHTTPLinkValidator) lv ).getConnectionPoolStatistics();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns how the links were served so far, from the cache or by a validator, and the time spent by each
+     * validator.
+     *
+     * @return a snapshot of the statistics.
+     * @since 1.3
+     */
+    public ValidationStatistics getValidationStatistics()
+    {
+        Map<String, ValidatorMetrics> metrics = new LinkedHashMap<>();
+        for ( LinkValidator lv : this.validators )
+        {
+            String name = getValidatorMetrics( lv ).getName();
+            ValidatorMetrics total = metrics.get( name );
+            if ( total == null )
+            {
+                total = new ValidatorMetrics( name );
+                metrics.put( name, total );
+            }
+            total.merge( getValidatorMetrics( lv ) );
+        }
+
+        return new ValidationStatistics( this.cacheHits.get(), this.cacheMisses.get(), this.excludedLinkCount.get(),
+                                         this.localResults.getEvictions() + this.remoteResults.getEvictions(),
+                                         metrics );
+    }
+
+    /**
+     * @param lv a validator.
+     * @return the metrics of the validator, created if needed.
+     */
+    private ValidatorMetrics getValidatorMetrics( LinkValidator lv )
+    {
+        ValidatorMetrics metrics = this.validatorMetrics.get( lv );
+        if ( metrics == null )
+        {
+            String name = lv.getClass().getSimpleName();
+            metrics = new ValidatorMetrics( name.isEmpty() ? lv.getClass().getName() : name );
+            ValidatorMetrics existing = this.validatorMetrics.putIfAbsent( lv, metrics );
+            if ( existing != null )
+            {
+                metrics = existing;
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of the requests sent by the online validators so far.
+     *
+     * @return the metrics per lower case host name, followed by the port if it is not the default one.
+     * @since 1.3
+     */
+    public Map<String, HostMetrics> getHostMetrics()
+    {
+        Map<String, HostMetrics> metrics = new TreeMap<>();
+
+        for ( LinkValidator lv : this.validators )
+        {
+            if ( lv instanceof OnlineHTTPLinkValidator )
+            {
+                for ( HostMetrics hostMetrics : ( (OnlineHTTPLinkValidator) lv ).getHostMetrics().values() )
+                {
+                    HostMetrics total = metrics.get( hostMetrics.getHost() );
+                    if ( total == null )
+                    {
+                        total = new HostMetrics( hostMetrics.getHost() );
+                        metrics.put( total.getHost(), total );
+                    }
+                    total.merge( hostMetrics );
+                }
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Validates the links of the given LinkValidationItem.
+     *
+     * @param lvi The LinkValidationItem to validate.
+     * @return A LinkValidationResult.
+     */
+    public LinkValidationResult validateLink( LinkValidationItem lvi )
+    {
+        awaitCache();
+
+        ResolvedLink resolved = resolve( lvi );
+        LinkValidationResult cachedResult = getCachedResult( lvi, resolved, true );
+
+        if ( cachedResult != null )
+        {
+            if ( !isFirstBatchedItem( resolved ) )
+            {
+                this.cacheHits.incrementAndGet();
+            }
+            unpin( resolved, lvi.getSource() );
+            return cachedResult;
+        }
+
+        if ( isExcluded( lvi.getLink() ) )
+        {
+            this.excludedLinkCount.incrementAndGet();
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Excluded " + lvi.getLink() );
+            }
+
+            return new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false, "" );
+        }
+
+        this.cacheMisses.incrementAndGet();
+
+        return validate( lvi, resolved );
+    }
+
+    /**
+     * Schedules the external links of the given items for {@link #warmUp()} and
+     * {@link #validateScheduledLinks(int)}, typically page by page while the pages are scanned. Only the distinct
+     * links of the online validators which are not excluded are kept, with the number of pages referencing them.
+     * The cache is not used yet, as it may still be loading.
+     *
+     * @param items LinkValidationItems, e.g. the ones of a page.
+     * @since 1.3
+     */
+    public void scheduleLinks( Collection<LinkValidationItem> items )
+    {
+        for ( LinkValidationItem lvi : items )
+        {
+            LinkValidator[] candidates = getCandidates( lvi.getLink() );
+            for ( int i = 0; i < candidates.length; i++ )
+            {
+                LinkValidator lv = candidates[i];
+                Object resourceKey = lv.getResourceKey( lvi );
+                if ( resourceKey == null )
+                {
+                    continue;
+                }
+
+                if ( lv instanceof OnlineHTTPLinkValidator && !this.unscheduledKeys.contains( resourceKey ) )
+                {
+                    ReferencedLink link = this.scheduledLinks.get( resourceKey );
+                    if ( link == null )
+                    {
+                        OnlineHTTPLinkValidator olv = (OnlineHTTPLinkValidator) lv;
+                        String origin = isExcluded( lvi.getLink() ) ? null : olv.getOrigin( lvi.getLink() );
+                        if ( origin == null )
+                        {
+                            this.unscheduledKeys.add( resourceKey );
+                            break;
+                        }
+
+                        // the keys of the previous validators are null: only the next ones are still needed
+                        ResolvedLink resolved = new ResolvedLink( candidates.length - i );
+                        resolved.add( lv, resourceKey );
+                        resolve( lvi, candidates, i + 1, resolved );
+
+                        link = new ReferencedLink( lvi, resolved, resourceKey, olv, origin );
+                        this.scheduledLinks.put( resourceKey, link );
+                    }
+                    link.reference( lvi.getSource() );
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Prepares the validation of the scheduled links: the online validators resolve the hosts of the ones which
+     * are not cached.
+     *
+     * @since 1.3
+     */
+    public void warmUp()
+    {
+        awaitCache();
+
+        Map<OnlineHTTPLinkValidator, List<String>> linksByValidator = new LinkedHashMap<>();
+        for ( ReferencedLink link : this.scheduledLinks.values() )
+        {
+            if ( !isCached( link.validator, link.key ) )
+            {
+                List<String> links = linksByValidator.get( link.validator );
+                if ( links == null )
+                {
+                    links = new ArrayList<>();
+                    linksByValidator.put( link.validator, links );
+                }
+                links.add( link.item.getLink() );
+            }
+        }
+
+        for ( Map.Entry<OnlineHTTPLinkValidator, List<String>> links : linksByValidator.entrySet() )
+        {
+            links.getKey().warmUp( links.getValue() );
+        }
+    }
+
+    /**
+     * Forgets the scheduled links, when they are left to the page by page validation.
+     *
+     * @since 1.3
+     */
+    public void clearScheduledLinks()
+    {
+        this.scheduledLinks.clear();
+        this.unscheduledKeys.clear();
+    }
+
+    /**
+     * Validates the given items ahead of the page by page validation, which is then served from the cache.
+     *
+     * @param items all the LinkValidationItems to be validated.
+     * @param concurrentHosts the maximum number of origins validated concurrently.
+     * @see #validateScheduledLinks(int)
+     * @since 1.3
+     */
+    public void validateLinks( Collection<LinkValidationItem> items, int concurrentHosts )
+    {
+        scheduleLinks( items );
+        validateScheduledLinks( concurrentHosts );
+    }
+
+    /**
+     * Validates the scheduled links ahead of the page by page validation, which is then served from the cache,
+     * and forgets them. The scheduled links which are not cached are grouped by origin (scheme, host and port),
+     * and the links of a group are validated back-to-back, so that they reuse the same keep-alive connections.
+     * Up to <code>concurrentHosts</code> groups are validated at a time, a group held back by the rate limits
+     * leaving its thread to the other groups in the meantime. In popularity order, the links of a group are sorted
+     * by decreasing number of referencing pages, and the groups are started by decreasing popularity of their most
+     * referenced link.
+     *
+     * @param concurrentHosts the maximum number of origins validated concurrently.
+     * @since 1.3
+     */
+    public void validateScheduledLinks( int concurrentHosts )
+    {
+        validateScheduledLinks( concurrentHosts, true );
+    }
+
+    /**
+     * Validates the external links of a page ahead of its items, like {@link #validateLinks(Collection, int)}, so
+     * that the links of a host held back by the rate limits do not hold back the links of the other hosts.
+     *
+     * @param items the LinkValidationItems of a page.
+     * @param concurrentHosts the maximum number of origins validated concurrently.
+     * @since 1.3
+     */
+    public void validatePageLinks( Collection<LinkValidationItem> items, int concurrentHosts )
+    {
+        scheduleLinks( items );
+        validateScheduledLinks( concurrentHosts, false );
+    }
+
+    /**
+     * @param concurrentHosts the maximum number of origins validated concurrently.
+     * @param verbose whether to report the progress at the info level, rather than the debug one.
+     */
+    private void validateScheduledLinks( int concurrentHosts, boolean verbose )
+    {
+        awaitCache();
+
+        Map<String, HostGroup> groupsByOrigin = new TreeMap<>();
+        int scheduled = 0;
+        for ( ReferencedLink link : this.scheduledLinks.values() )
+        {
+            if ( isCached( link.validator, link.key ) )
+            {
+                continue;
+            }
+
+            HostGroup group = groupsByOrigin.get( link.origin );
+            if ( group == null )
+            {
+                group = new HostGroup( link.origin, link.validator, true );
+                groupsByOrigin.put( link.origin, group );
+            }
+            group.links.add( link );
+            scheduled++;
+        }
+        clearScheduledLinks();
+
+        if ( groupsByOrigin.isEmpty() )
+        {
+            return;
+        }
+
+        List<HostGroup> groups = new ArrayList<>( groupsByOrigin.values() );
+        if ( this.popularityOrder )
+        {
+            for ( HostGroup group : groups )
+            {
+                // stable: links as popular are still validated in the order of the pages
+                Collections.sort( group.links, ReferencedLink.BY_POPULARITY );
+            }
+            Collections.sort( groups, new Comparator<HostGroup>()
+            {
+                @Override
+                public int compare( HostGroup g1, HostGroup g2 )
+                {
+                    return ReferencedLink.BY_POPULARITY.compare( g1.links.get( 0 ), g2.links.get( 0 ) );
+                }
+            } );
+        }
+
+        if ( verbose ? LOG.isInfoEnabled() : LOG.isDebugEnabled() )
+        {
+            String msg = "Validating " + scheduled + " external link(s) on " + groups.size() + " host(s)"
+                + ( this.popularityOrder ? ", most referenced first..." : "..." );
+            if ( verbose )
+            {
+                LOG.info( msg );
+            }
+            else
+            {
+                LOG.debug( msg );
+            }
+        }
+
+        runGroups( groups, concurrentHosts );
+
+        if ( verbose && LOG.isInfoEnabled() )
+        {
+            for ( LinkValidator lv : this.validators )
+            {
+                if ( lv instanceof OnlineHTTPLinkValidator )
+                {
+                    LOG.info( "External links validated: "
+                        + ( (OnlineHTTPLinkValidator) lv ).getConnectionPoolStatistics() + "." );
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the given groups, up to <code>concurrentHosts</code> at a time, and waits for them.
+     *
+     * @param groups the groups of links.
+     * @param concurrentHosts the maximum number of groups run concurrently.
+     */
+    private void runGroups( List<HostGroup> groups, int concurrentHosts )
+    {
+        int threads = Math.max( 1, Math.min( concurrentHosts, groups.size() ) );
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool( threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable r )
+            {
+                Thread t = new Thread( r, "linkcheck-host" );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+
+        CountDownLatch done = new CountDownLatch( groups.size() );
+        for ( HostGroup group : groups )
+        {
+            group.executor = executor;
+            group.done = done;
+            executor.execute( group );
+        }
+
+        try
+        {
+            while ( !done.await( 1, TimeUnit.MINUTES ) )
+            {
+                LOG.debug( "Still validating external links..." );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param link the link to check.
+     * @return <code>true</code> if the link matches one of the excluded links.
+     */
+    private boolean isExcluded( String link )
+    {
+        ExcludedLinksMatcher matcher = this.excludedLinksMatcher;
+        if ( matcher == null )
+        {
+            matcher = new ExcludedLinksMatcher( this.excludedLinks );
+            this.excludedLinksMatcher = matcher;
+        }
+
+        return matcher.matches( link );
+    }
+
+    /**
+     * Computes the keys of an item, once per validation of the item, with the validators which may be responsible
+     * for its kind of link only.
+     *
+     * @param lvi The LinkValidationItem.
+     * @return the validators responsible for the item, in order.
+     */
+    private ResolvedLink resolve( LinkValidationItem lvi )
+    {
+        LinkValidator[] candidates = getCandidates( lvi.getLink() );
+        ResolvedLink resolved = new ResolvedLink( candidates.length );
+        resolve( lvi, candidates, 0, resolved );
+
+        return resolved;
+    }
+
+    /**
+     * @param lvi The LinkValidationItem.
+     * @param candidates the validators which may be responsible for the item.
+     * @param from the index of the first candidate whose key to compute.
+     * @param resolved the validators responsible for the item, completed.
+     */
+    private static void resolve( LinkValidationItem lvi, LinkValidator[] candidates, int from,
+                                 ResolvedLink resolved )
+    {
+        for ( int i = from; i < candidates.length; i++ )
+        {
+            Object resourceKey = candidates[i].getResourceKey( lvi );
+            if ( resourceKey != null )
+            {
+                resolved.add( candidates[i], resourceKey );
+            }
+        }
+    }
+
+    /**
+     * @param link a link.
+     * @return the validators which may be responsible for the link, in order.
+     */
+    private LinkValidator[] getCandidates( String link )
+    {
+        LinkValidator[][] table = this.dispatch;
+        if ( table == null )
+        {
+            table = new LinkValidator[LINK_KINDS][];
+            for ( int kind = 0; kind < LINK_KINDS; kind++ )
+            {
+                List<LinkValidator> candidates = new ArrayList<>();
+                for ( LinkValidator lv : this.validators )
+                {
+                    if ( mayBeResponsible( lv, kind ) )
+                    {
+                        candidates.add( lv );
+                    }
+                }
+                table[kind] = candidates.toArray( new LinkValidator[candidates.size()] );
+            }
+            this.dispatch = table;
+        }
+
+        return table[getLinkKind( link )];
+    }
+
+    /**
+     * @param link a link.
+     * @return the kind of the link, i.e. {@link #HTTP_LINK}, {@link #ABSOLUTE_LINK} or {@link #LOCAL_LINK}, plus
+     * {@link #AT_SIGN} if it holds an '@'.
+     */
+    private static int getLinkKind( String link )
+    {
+        int kind = LOCAL_LINK;
+        if ( link.regionMatches( true, 0, "http://", 0, 7 ) || link.regionMatches( true, 0, "https://", 0, 8 ) )
+        {
+            kind = HTTP_LINK;
+        }
+        else if ( link.startsWith( "/" ) )
+        {
+            kind = ABSOLUTE_LINK;
+        }
+
+        return ( link.indexOf( '@' ) != -1 ) ? kind + AT_SIGN : kind;
+    }
+
+    /**
+     * The validators of this package claim the links by their kind, except the ones checking the site absolute
+     * links locally, which may claim any link. The other validators may claim any link.
+     *
+     * @param lv a validator.
+     * @param kind a kind of link.
+     * @return <code>false</code> if the validator never returns a key for the links of this kind.
+     */
+    private static boolean mayBeResponsible( LinkValidator lv, int kind )
+    {
+        Class<?> type = lv.getClass();
+        if ( type == FileLinkValidator.class )
+        {
+            return kind == LOCAL_LINK || ( (FileLinkValidator) lv ).isSiteLocal();
+        }
+        if ( type == OnlineHTTPLinkValidator.class || type == OfflineHTTPLinkValidator.class )
+        {
+            return kind % AT_SIGN != LOCAL_LINK;
+        }
+        if ( type == MailtoLinkValidator.class )
+        {
+            return kind >= AT_SIGN;
+        }
+
+        return true;
+    }
+
+    /**
+     * Validates an item with the first validator responsible for it, and caches the result.
+     *
+     * @param lvi The LinkValidationItem to validate.
+     * @param resolved the validators responsible for the item.
+     * @return A LinkValidationResult.
+     */
+    private LinkValidationResult validate( LinkValidationItem lvi, ResolvedLink resolved )
+    {
+        for ( int i = 0; i < resolved.size; i++ )
+        {
+            LinkValidator lv = resolved.validators[i];
+            Object resourceKey = resolved.keys[i];
+
+            if ( lv instanceof OnlineHTTPLinkValidator
+                && ( (OnlineHTTPLinkValidator) lv ).tryAcquire( lvi.getLink() ) > 0 )
+            {
+                return validateWhenAllowed( lvi, resolved, resourceKey, (OnlineHTTPLinkValidator) lv );
+            }
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( lv.getClass().getName() + " - Checking link " + lvi.getLink() );
+            }
+
+            long start = System.nanoTime();
+            LinkValidationResult lvr = lv.validateLink( lvi );
+            getValidatorMetrics( lv ).recordValidation( System.nanoTime() - start );
+
+            if ( lvr.getStatus() == LinkValidationResult.NOTMINE )
+            {
+                continue;
+            }
+
+            setCachedResult( resourceKey, lvr, lv instanceof FileLinkValidator );
+
+            return lvr;
+        }
+
+        if ( LOG.isErrorEnabled() )
+        {
+            LOG.error( "Unable to validate link : " + lvi.getLink() );
+        }
+
+        return new LinkValidationResult( LinkcheckFileResult.UNKNOWN_LEVEL, false, "No validator found for this link" );
+    }
+
+    /**
+     * Validates an item held back by the rate limits, in a group of its own which is scheduled again until the
+     * limits allow its request, rather than sleeping.
+     *
+     * @param lvi The LinkValidationItem to validate.
+     * @param resolved the validators responsible for the item.
+     * @param resourceKey the key of the item for the online validator.
+     * @param validator the online validator of the item.
+     * @return A LinkValidationResult.
+     */
+    private LinkValidationResult validateWhenAllowed( LinkValidationItem lvi, ResolvedLink resolved,
+                                                      Object resourceKey, OnlineHTTPLinkValidator validator )
+    {
+        String origin = validator.getOrigin( lvi.getLink() );
+        ReferencedLink link = new ReferencedLink( lvi, resolved, resourceKey, validator, origin );
+        HostGroup group = new HostGroup( origin, validator, false );
+        group.links.add( link );
+
+        runGroups( Collections.singletonList( group ), 1 );
+
+        if ( link.result == null )
+        {
+            if ( abortReason != null )
+            {
+                return new LinkValidationResult( LinkcheckFileResult.NOT_CHECKED_LEVEL, false,
+                                                 OnlineHTTPLinkValidator.NOT_CHECKED_AFTER_ABORT );
+            }
+
+            return new LinkValidationResult( LinkcheckFileResult.UNKNOWN_LEVEL, false,
+                                             "Interrupted while waiting for the rate limit" );
+        }
+
+        return link.result;
+    }
+
+    /**
+     * Loads a cache file in the background, while the pages are scanned for instance. The validation of the links
+     * and the other uses of the cache wait for the loading to complete, {@link #awaitCacheLoaded()} reporting its
+     * failure.
+     *
+     * @param cacheFile The cache file.
+     * May be null, in which case the request is ignored.
+     * @since 1.3
+     */
+    public void loadCacheInBackground( final File cacheFile )
+    {
+        awaitCache();
+
+        if ( cacheFile == null )
+        {
+            LOG.debug( "No cache file specified! Ignoring request to load." );
+            return;
+        }
+
+        FutureTask<Void> loading = new FutureTask<>( new Callable<Void>()
+        {
+            @Override
+            public Void call()
+                throws IOException
+            {
+                readCache( cacheFile );
+                return null;
+            }
+        } );
+
+        this.cacheLoading = loading;
+
+        Thread t = new Thread( loading, "linkcheck-cache-load" );
+        t.setDaemon( true );
+        t.start();
+    }
+
+    /**
+     * Waits for the cache file loaded in the background, if any.
+     *
+     * @throws IOException if the cache file could not be loaded, the cache then being empty.
+     * @since 1.3
+     */
+    public void awaitCacheLoaded()
+        throws IOException
+    {
+        FutureTask<Void> loading = this.cacheLoading;
+        if ( loading == null )
+        {
+            return;
+        }
+
+        try
+        {
+            loading.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while loading the cache" );
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        }
+        finally
+        {
+            if ( loading.isDone() )
+            {
+                this.cacheLoading = null;
+            }
+        }
+    }
+
+    /**
+     * Waits for the cache file loaded in the background, if any, its failure being only logged.
+     */
+    private void awaitCache()
+    {
+        if ( this.cacheLoading == null )
+        {
+            return;
+        }
+
+        try
+        {
+            awaitCacheLoaded();
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "Unable to load the cache, the links are validated without it.", e );
+        }
+    }
+
+    /**
+     * Loads a cache file. The results produced from now on are appended to it, until it is saved.
+     * A cache file written by Java serialization, by older versions, is still read, and rewritten when saved.
+     *
+     * @param cacheFile The cache file.
+     * May be null, in which case the request is ignored.
+     * @throws IOException if any
+     */
+    public void loadCache( File cacheFile )
+        throws IOException
+    {
+        awaitCache();
+        readCache( cacheFile );
+    }
+
+    /**
+     * @param cacheFile The cache file, may be null.
+     * @throws IOException if any
+     */
+    @SuppressWarnings( "unchecked" )
+    private void readCache( File cacheFile )
+        throws IOException
+    {
+        if ( cacheFile == null )
+        {
+            LOG.debug( "No cache file specified! Ignoring request to load." );
+            return;
+        }
+
+        if ( cacheFile.isDirectory() )
+        {
+            LOG.debug( "Cache file is a directory! Ignoring request to load." );
+            return;
+        }
+
+        closeCacheFile();
+        this.loadTime = System.currentTimeMillis();
+
+        if ( cacheFile.exists() && CacheFile.isSerialized( cacheFile ) )
+        {
+            try ( ObjectInputStream is = new ObjectInputStream( new FileInputStream( cacheFile ) ) )
+            {
+                this.cache = new ConcurrentHashMap<>( (Map<Object, LinkValidationResult>) is.readObject() );
+
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "Cache file loaded: " + cacheFile.getAbsolutePath() );
+                }
+            }
+            catch ( InvalidClassException e )
+            {
+                LOG.warn( "Your cache is incompatible with this version of linkcheck. It will be recreated." );
+            }
+            catch ( ClassNotFoundException e )
+            {
+                if ( LOG.isErrorEnabled() )
+                {
+                    LOG.error( "Unable to load the cache: " + cacheFile.getAbsolutePath(), e );
+                }
+            }
+
+            // rewritten in the current format when saved
+            return;
+        }
+
+        CacheFile file = new CacheFile( cacheFile );
+        if ( this.offHeapCache && loadIndex( file ) )
+        {
+            this.cacheFile = file;
+            return;
+        }
+
+        if ( !cacheFile.exists() )
+        {
+            LOG.debug( "Specified cache file does not exist! Ignoring request to load." );
+            this.cacheFile = file;
+            return;
+        }
+
+        Map<Object, LinkValidationResult> results = new HashMap<>();
+        Map<String, HTTPLinkValidationResult> hops = new HashMap<>();
+        if ( file.load( results, hops ) )
+        {
+            Map<Object, LinkValidationResult> loaded = new ConcurrentHashMap<>();
+            for ( Map.Entry<Object, LinkValidationResult> entry : results.entrySet() )
+            {
+                // the errors stored by a run with a time to live are only used with one
+                if ( entry.getValue().getStatus() != LinkcheckFileResult.ERROR_LEVEL || keepsErrors() )
+                {
+                    loaded.put( entry.getKey(), entry.getValue() );
+                }
+            }
+            this.cache = loaded;
+
+            for ( Map.Entry<String, HTTPLinkValidationResult> hop : hops.entrySet() )
+            {
+                if ( !isExpired( hop.getKey(), hop.getValue() ) )
+                {
+                    this.redirects.put( hop.getKey(), hop.getValue() );
+                    this.storedRedirects.put( hop.getKey(), hop.getValue() );
+                }
+            }
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Cache file loaded: " + cacheFile.getAbsolutePath() + " (" + file.getRecordCount()
+                    + " records)" );
+            }
+        }
+        else
+        {
+            LOG.warn( "Your cache is incompatible with this version of linkcheck. It will be recreated." );
+        }
+
+        this.cacheFile = file;
+    }
+
+    /**
+     * Loads the off-heap index of a cache file, which is rebuilt from the cache file unless it reflects it already.
+     *
+     * @param file the cache file.
+     * @return <code>false</code> if the index is used by another process or cannot be opened, in which case the
+     * cache file should be read in memory.
+     * @throws IOException if the cache file cannot be read.
+     */
+    private boolean loadIndex( CacheFile file )
+        throws IOException
+    {
+        String path = file.getFile().getPath();
+        MappedResultMap<Object, LinkValidationResult> results = null;
+        MappedResultMap<String, HTTPLinkValidationResult> hops = null;
+        try
+        {
+            results = MappedResultMap.open( new File( path + ".index" ) );
+            hops = ( results == null ) ? null : MappedResultMap.<String, HTTPLinkValidationResult>open(
+                new File( path + ".redirects.index" ) );
+        }
+        catch ( IOException | IllegalStateException e )
+        {
+            LOG.warn( "Unable to open the cache index, the cache is loaded in memory.", e );
+        }
+
+        if ( hops == null )
+        {
+            if ( results != null )
+            {
+                results.close();
+            }
+            else
+            {
+                LOG.info( "The cache index is used by another build, the cache is loaded in memory." );
+            }
+            return false;
+        }
+
+        long length = file.getFile().isFile() ? file.getFile().length() : -1;
+        if ( length > 0 && results.getLogLength() == length && hops.getLogLength() == length )
+        {
+            file.assumeLoaded( length, results.getLogRecords() );
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Cache index mapped: " + results.getFile().getAbsolutePath() + " (" + results.size()
+                    + " results)" );
+            }
+        }
+        else
+        {
+            results.clear();
+            hops.clear();
+            try
+            {
+                if ( length > 0 && !file.load( results, hops ) )
+                {
+                    LOG.warn( "Your cache is incompatible with this version of linkcheck. It will be recreated." );
+                    results.clear();
+                    hops.clear();
+                }
+            }
+            catch ( IllegalStateException e )
+            {
+                LOG.warn( "The cache index cannot hold the cache, the cache is loaded in memory.", e );
+                close( results );
+                close( hops );
+                return false;
+            }
+
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Cache index rebuilt: " + results.getFile().getAbsolutePath() + " (" + results.size()
+                    + " results)" );
+            }
+        }
+
+        for ( Map.Entry<String, HTTPLinkValidationResult> hop : hops.entrySet() )
+        {
+            if ( !isExpired( hop.getKey(), hop.getValue() ) )
+            {
+                this.redirects.put( hop.getKey(), hop.getValue() );
+                this.storedRedirects.put( hop.getKey(), hop.getValue() );
+            }
+        }
+
+        this.cache = results;
+        this.resultIndex = results;
+        this.redirectIndex = hops;
+
+        return true;
+    }
+
+    /**
+     * Saves a cache file. If it is the loaded one, the new redirect hops are appended to it, and it is compacted
+     * once most of its records are outdated. Otherwise the results are merged into the cache file. The cache file
+     * can be shared by concurrent builds: their results are merged, keeping the newest result of each link.
+     *
+     * @param cacheFile The name of the cache file.
+     * May be null, in which case the request is ignored.
+     * @throws IOException if any
+     */
+    public void saveCache( File cacheFile )
+        throws IOException
+    {
+        awaitCache();
+
+        awaitRefreshes();
+
+        if ( cacheFile == null )
+        {
+            LOG.warn( "No cache file specified! Ignoring request to store results." );
+            return;
+        }
+
+        if ( cacheFile.isDirectory() )
+        {
+            LOG.debug( "Cache file is a directory! Ignoring request to load." );
+            return;
+        }
+
+        CacheFile file = this.cacheFile;
+        this.cacheFile = null;
+        boolean indexed = false;
+        try
+        {
+            if ( file == null || !file.getFile().getAbsoluteFile().equals( cacheFile.getAbsoluteFile() ) )
+            {
+                if ( file != null )
+                {
+                    file.close();
+                }
+                file = new CacheFile( cacheFile );
+                file.merge( getPersistentResults(), getPersistentRedirects() );
+                return;
+            }
+
+            // counting the persistent results would read the whole off-heap index
+            int live = this.cache.size() + this.redirects.size();
+            if ( file.getRecordCount() > 2 * live + COMPACTION_SLACK )
+            {
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "Compacting the cache file from " + file.getRecordCount() + " to at most " + live
+                        + " records." );
+                }
+                file.merge( getPersistentResults(), getPersistentRedirects() );
+                return;
+            }
+
+            Map<String, HTTPLinkValidationResult> persistentRedirects = getPersistentRedirects();
+            for ( Map.Entry<String, HTTPLinkValidationResult> redirect : persistentRedirects.entrySet() )
+            {
+                if ( this.storedRedirects.get( redirect.getKey() ) != redirect.getValue() )
+                {
+                    file.appendRedirect( redirect.getKey(), redirect.getValue() );
+                    if ( this.redirectIndex != null )
+                    {
+                        try
+                        {
+                            this.redirectIndex.put( redirect.getKey(), redirect.getValue() );
+                        }
+                        catch ( IllegalStateException e )
+                        {
+                            dropIndex( e );
+                        }
+                    }
+                }
+            }
+            for ( String link : this.storedRedirects.keySet() )
+            {
+                if ( !persistentRedirects.containsKey( link ) )
+                {
+                    file.appendRemovedRedirect( link, System.currentTimeMillis() );
+                    if ( this.redirectIndex != null )
+                    {
+                        this.redirectIndex.remove( link );
+                    }
+                }
+            }
+
+            file.close();
+            indexed = !file.isShared();
+        }
+        finally
+        {
+            this.storedRedirects.clear();
+            file.close();
+            closeIndex( indexed ? file : null );
+        }
+    }
+
+    /**
+     * @return the persistent results, which are stored in the cache file.
+     */
+    private Map<String, LinkValidationResult> getPersistentResults()
+    {
+        Map<String, LinkValidationResult> persistentCache = new HashMap<>();
+
+        for ( Map.Entry<Object, LinkValidationResult> resource : this.cache.entrySet() )
+        {
+            if ( resource.getKey() instanceof String && resource.getValue().isPersistent()
+                && ( resource.getValue().getStatus() != LinkcheckFileResult.ERROR_LEVEL || keepsErrors() ) )
+            {
+                persistentCache.put( (String) resource.getKey(), resource.getValue() );
+
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "[" + resource.getKey() + "] with result [" + resource.getValue()
+                        + "] is stored in the cache." );
+                }
+            }
+        }
+
+        return persistentCache;
+    }
+
+    /**
+     * @return the persistent redirect hops, which are stored in the cache file.
+     */
+    private Map<String, HTTPLinkValidationResult> getPersistentRedirects()
+    {
+        Map<String, HTTPLinkValidationResult> persistentRedirects = new HashMap<>();
+        for ( Map.Entry<String, HTTPLinkValidationResult> redirect : this.redirects.entrySet() )
+        {
+            if ( redirect.getValue().isPersistent() )
+            {
+                persistentRedirects.put( redirect.getKey(), redirect.getValue() );
+            }
+        }
+
+        return persistentRedirects;
+    }
+
+    /**
+     * Moves the results of the off-heap index to the heap, once the index cannot grow anymore. The index is left
+     * out of date, to be rebuilt by the next run.
+     *
+     * @param e the failure to grow the index.
+     */
+    private void dropIndex( IllegalStateException e )
+    {
+        synchronized ( this.indexLock )
+        {
+            MappedResultMap<Object, LinkValidationResult> results = this.resultIndex;
+            if ( results == null )
+            {
+                return;
+            }
+
+            LOG.warn( "The cache index cannot grow anymore, the results are now cached in memory.", e );
+            this.cache = new ConcurrentHashMap<>( results );
+            this.resultIndex = null;
+            close( results );
+            close( this.redirectIndex );
+            this.redirectIndex = null;
+        }
+    }
+
+    /**
+     * Releases the off-heap index, if any, the cache being emptied.
+     *
+     * @param file the cache file the index now reflects, or null if it does not reflect it.
+     */
+    private void closeIndex( CacheFile file )
+    {
+        synchronized ( this.indexLock )
+        {
+            MappedResultMap<Object, LinkValidationResult> results = this.resultIndex;
+            MappedResultMap<String, HTTPLinkValidationResult> hops = this.redirectIndex;
+            this.resultIndex = null;
+            this.redirectIndex = null;
+            if ( results == null )
+            {
+                return;
+            }
+
+            if ( file != null )
+            {
+                results.setLog( file.getLength(), file.getRecordCount() );
+                hops.setLog( file.getLength(), file.getRecordCount() );
+            }
+
+            this.cache = new ConcurrentHashMap<>();
+            this.confirmedKeys.clear();
+            close( results );
+            close( hops );
+        }
+    }
+
+    private static void close( MappedResultMap<?, ?> index )
+    {
+        try
+        {
+            index.close();
+        }
+        catch ( IOException e )
+        {
+            LOG.warn( "Unable to close the cache index: " + index.getFile().getAbsolutePath(), e );
+        }
+    }
+
+    /**
+     * Closes the cache file the results are appended to, if any.
+     */
+    private void closeCacheFile()
+    {
+        CacheFile file = this.cacheFile;
+        this.cacheFile = null;
+        this.storedRedirects.clear();
+        closeIndex( null );
+        if ( file != null )
+        {
+            try
+            {
+                file.close();
+            }
+            catch ( IOException e )
+            {
+                LOG.warn( "Unable to close the cache file: " + file.getFile().getAbsolutePath(), e );
+            }
+        }
+    }
+
+    /**
+     * Returns a LinkValidationResult for the given LinkValidationItem
+     * if it has been cached from a previous run, returns null otherwise.
+     *
+     * @param lvi The LinkValidationItem.
+     * @return LinkValidationResult
+     */
+    public LinkValidationResult getCachedResult( LinkValidationItem lvi )
+    {
+        awaitCache();
+
+        return getCachedResult( lvi, resolve( lvi ), false );
+    }
+
+    /**
+     * Returns the cached LinkValidationResult for the given LinkValidationItem, revalidating it first
+     * if it was loaded from the cache file and has not been confirmed in this run yet. Expired valid results
+     * are returned while being refreshed in the background, other expired results are not returned.
+     *
+     * @param lvi The LinkValidationItem.
+     * @param resolved the validators responsible for the item.
+     * @param revalidate whether results loaded from the cache file or expired should be revalidated.
+     * @return LinkValidationResult, or null if not cached.
+     */
+    private LinkValidationResult getCachedResult( LinkValidationItem lvi, ResolvedLink resolved, boolean revalidate )
+    {
+        for ( int i = 0; i < resolved.size; i++ )
+        {
+            LinkValidator lv = resolved.validators[i];
+            Object resourceKey = resolved.keys[i];
+
+            LinkValidationResult result = getResult( lv, resourceKey );
+            if ( result != null && !isForgotten( result ) )
+            {
+                if ( revalidate && revalidateCache && lv instanceof OnlineHTTPLinkValidator
+                    && result.getTimestamp() <= this.loadTime && confirmedKeys.add( resourceKey ) )
+                {
+                    if ( LOG.isDebugEnabled() )
+                    {
+                        LOG.debug( "Revalidating the cached result for [" + resourceKey + "]." );
+                    }
+
+                    result = ( (OnlineHTTPLinkValidator) lv ).revalidateLink( lvi, result );
+
+                    setCachedResult( resourceKey, result );
+                }
+                else if ( revalidate && lv instanceof OnlineHTTPLinkValidator && isExpired( resourceKey, result ) )
+                {
+                    if ( result.getStatus() != LinkcheckFileResult.VALID_LEVEL )
+                    {
+                        // never report a stale failure, validate it again
+                        return null;
+                    }
+
+                    refresh( (OnlineHTTPLinkValidator) lv, lvi, resourceKey, result );
+                }
+
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "The cache returns for [" + resourceKey + "] the result [" + result + "]." );
+                }
+
+                return result;
+            }
+        }
+
+        return null;
     }
 
     /**
-     * Adds a LinkValidator to this manager.
+     * Puts the given LinkValidationResult of an external link into the cache.
      *
-     * @param lv The LinkValidator to add.
+     * @param resourceKey The key to retrieve the result.
+     * @param lvr the LinkValidationResult to cache.
      */
-    public void addLinkValidator( LinkValidator lv )
+    public void setCachedResult( Object resourceKey, LinkValidationResult lvr )
     {
-        this.validators.add( lv );
+        awaitCache();
+
+        setCachedResult( resourceKey, lvr, false );
     }
 
     /**
-     * Validates the links of the given LinkValidationItem.
+     * Puts the given LinkValidationResult into the cache. The results which are not persistent are kept apart,
+     * in memory only and within the limits of {@link #setMaxLocalResults(int)} and
+     * {@link #setMaxRemoteResults(int)}, and so are the errors without a {@link #setFailureTtl(long) failure time
+     * to live}, which would never be used by the next runs.
      *
-     * @param lvi The LinkValidationItem to validate.
-     * @return A LinkValidationResult.
+     * @param resourceKey The key to retrieve the result.
+     * @param lvr the LinkValidationResult to cache.
+     * @param local whether the result is the one of a local file.
      */
-    public LinkValidationResult validateLink( LinkValidationItem lvi )
+    private void setCachedResult( Object resourceKey, LinkValidationResult lvr, boolean local )
     {
-        LinkValidationResult cachedResult = getCachedResult( lvi );
+        ResultLruCache transientResults = local ? this.localResults : this.remoteResults;
+        boolean persistent = isStored( lvr );
+        LinkValidationResult previous;
+        if ( persistent )
+        {
+            transientResults.remove( resourceKey );
+            try
+            {
+                previous = this.cache.put( resourceKey, lvr );
+            }
+            catch ( IllegalStateException e )
+            {
+                dropIndex( e );
+                previous = this.cache.put( resourceKey, lvr );
+            }
+        }
+        else
+        {
+            previous = this.cache.remove( resourceKey );
+            transientResults.put( resourceKey, lvr );
+        }
 
-        if ( cachedResult != null )
+        CacheFile file = this.cacheFile;
+        if ( file == null || !( resourceKey instanceof String ) )
         {
-            return cachedResult;
+            return;
         }
 
-        for ( int i = 0; i < this.excludedLinks.length; i++ )
+        try
         {
-            if ( this.excludedLinks[i] != null && matchPattern( lvi.getLink(), this.excludedLinks[i] ) )
+            if ( persistent )
             {
-                if ( LOG.isDebugEnabled() )
-                {
-                    LOG.debug( "Excluded " + lvi.getLink() );
-                }
-
-                return new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false, "" );
+                file.appendResult( (String) resourceKey, lvr );
+            }
+            else if ( previous != null && previous.isPersistent() )
+            {
+                file.appendRemovedResult( (String) resourceKey, lvr.getTimestamp() );
             }
         }
-
-        for ( LinkValidator lv : this.validators )
+        catch ( IOException e )
         {
-            Object resourceKey = lv.getResourceKey( lvi );
-
-            if ( resourceKey != null )
-            {
-                if ( LOG.isDebugEnabled() )
-                {
-                    LOG.debug( lv.getClass().getName() + " - Checking link " + lvi.getLink() );
-                }
-
-                LinkValidationResult lvr = lv.validateLink( lvi );
+            LOG.warn( "Unable to append to the cache file, it will be written when saved.", e );
+            this.cacheFile = null;
+        }
+    }
 
-                if ( lvr.getStatus() == LinkValidationResult.NOTMINE )
-                {
-                    continue;
-                }
+    /**
+     * @param lvr a result.
+     * @return <code>true</code> if the result is stored with the cache, rather than kept for the current run.
+     */
+    private boolean isStored( LinkValidationResult lvr )
+    {
+        return lvr.isPersistent() && ( lvr.getStatus() != LinkcheckFileResult.ERROR_LEVEL || keepsErrors() );
+    }
 
-                setCachedResult( resourceKey, lvr );
+    /**
+     * @return <code>true</code> if errors are kept across runs, i.e. with a positive failure time to live.
+     */
+    private boolean keepsErrors()
+    {
+        return this.failureTtl > 0;
+    }
 
-                return lvr;
-            }
+    /**
+     * @param lv the validator of the result.
+     * @param resourceKey the key of a result.
+     * @return the cached result, null if none.
+     */
+    private LinkValidationResult getResult( LinkValidator lv, Object resourceKey )
+    {
+        ResultLruCache transientResults = ( lv instanceof FileLinkValidator ) ? this.localResults : this.remoteResults;
+        LinkValidationResult result = transientResults.get( resourceKey );
+        if ( result == null )
+        {
+            result = this.cache.get( resourceKey );
         }
-
-        if ( LOG.isErrorEnabled() )
+        if ( result == null && !this.pinnedLinks.isEmpty() && !( lv instanceof FileLinkValidator ) )
         {
-            LOG.error( "Unable to validate link : " + lvi.getLink() );
+            ReferencedLink link = this.pinnedLinks.get( resourceKey );
+            result = ( link != null ) ? link.result : null;
         }
 
-        return new LinkValidationResult( LinkcheckFileResult.UNKNOWN_LEVEL, false, "No validator found for this link" );
+        return result;
     }
 
     /**
-     * Loads a cache file.
+     * The link validated up-front was counted as a cache miss, which stands for its first item: only the next
+     * ones are cache hits.
      *
-     * @param cacheFile The cache file.
-     * May be null, in which case the request is ignored.
-     * @throws IOException if any
+     * @param resolved the validators responsible for an item served from the cache.
+     * @return <code>true</code> if the item is the first one of a link validated up-front.
      */
-    @SuppressWarnings( "unchecked" )
-    public void loadCache( File cacheFile )
-        throws IOException
+    private boolean isFirstBatchedItem( ResolvedLink resolved )
     {
-        if ( cacheFile == null )
+        if ( this.batchedKeys.isEmpty() )
         {
-            LOG.debug( "No cache file specified! Ignoring request to load." );
-            return;
+            return false;
         }
 
-        if ( !cacheFile.exists() )
+        for ( int i = 0; i < resolved.size; i++ )
         {
-            LOG.debug( "Specified cache file does not exist! Ignoring request to load." );
-            return;
+            if ( this.batchedKeys.remove( resolved.keys[i] ) )
+            {
+                return true;
+            }
         }
 
-        if ( cacheFile.isDirectory() )
+        return false;
+    }
+
+    /**
+     * Counts a page served with the results of an item, and forgets the results validated up-front once all the
+     * pages referencing them are served.
+     *
+     * @param resolved the validators responsible for the item.
+     * @param source the page of the item.
+     */
+    private void unpin( ResolvedLink resolved, File source )
+    {
+        if ( this.pinnedLinks.isEmpty() )
         {
-            LOG.debug( "Cache file is a directory! Ignoring request to load." );
             return;
         }
 
-        
-        try ( ObjectInputStream is = new ObjectInputStream( new FileInputStream( cacheFile ) ) )
+        for ( int i = 0; i < resolved.size; i++ )
         {
-            this.cache = (Map<Object, LinkValidationResult>) is.readObject();
-
-            if ( LOG.isDebugEnabled() )
+            ReferencedLink link = this.pinnedLinks.get( resolved.keys[i] );
+            if ( link != null && link.release( source ) )
             {
-                LOG.debug( "Cache file loaded: " + cacheFile.getAbsolutePath() );
+                this.pinnedLinks.remove( resolved.keys[i] );
             }
         }
-        catch ( InvalidClassException e )
+    }
+
+    /**
+     * @param lv the validator of the result.
+     * @param resourceKey the key of a result.
+     * @return <code>true</code> if a result which may be used is cached for the key.
+     */
+    private boolean isCached( LinkValidator lv, Object resourceKey )
+    {
+        LinkValidationResult result = getResult( lv, resourceKey );
+
+        return result != null && !isForgotten( result );
+    }
+
+    /**
+     * The errors are only stored with a failure time to live, and only used by the next runs with one. The ones
+     * stored by a run with a time to live are dropped when the cache file is read in memory, but not from the
+     * off-heap index.
+     *
+     * @param result a cached result.
+     * @return <code>true</code> if the result is an error of a previous run which should not be used.
+     */
+    private boolean isForgotten( LinkValidationResult result )
+    {
+        return result.getStatus() == LinkcheckFileResult.ERROR_LEVEL && !keepsErrors()
+            && result.getTimestamp() < this.loadTime;
+    }
+
+    /**
+     * @param resourceKey the key of the cached result.
+     * @param result the cached result.
+     * @return <code>true</code> if the time to live of the result has elapsed.
+     */
+    private boolean isExpired( Object resourceKey, LinkValidationResult result )
+    {
+        boolean error = result.getStatus() == LinkcheckFileResult.ERROR_LEVEL;
+        if ( error && !keepsErrors() )
         {
-            LOG.warn( "Your cache is incompatible with this version of linkcheck. It will be recreated." );
+            // the errors which are not kept across runs are kept for the whole current run
+            return false;
         }
-        catch ( ClassNotFoundException e )
+
+        long ttl = error ? this.failureTtl : this.successTtl;
+
+        if ( !this.hostTtls.isEmpty() && resourceKey instanceof String )
         {
-            if ( LOG.isErrorEnabled() )
+            Long hostTtl = getHostTtl( getHost( (String) resourceKey ) );
+            if ( hostTtl != null )
             {
-                LOG.error( "Unable to load the cache: " + cacheFile.getAbsolutePath(), e );
+                ttl = hostTtl;
             }
         }
+
+        return ttl >= 0 && System.currentTimeMillis() - result.getTimestamp() > ttl;
     }
 
     /**
-     * Saves a cache file.
-     *
-     * @param cacheFile The name of the cache file.
-     * May be null, in which case the request is ignored.
-     * @throws IOException if any
+     * @param host the host, may be null.
+     * @return the time to live configured for the host, or null if none.
      */
-    public void saveCache( File cacheFile )
-        throws IOException
+    private Long getHostTtl( String host )
     {
-        if ( cacheFile == null )
+        if ( host == null )
         {
-            LOG.warn( "No cache file specified! Ignoring request to store results." );
-            return;
+            return null;
         }
 
-        if ( cacheFile.isDirectory() )
+        Long ttl = this.hostTtls.get( host );
+        if ( ttl != null )
         {
-            LOG.debug( "Cache file is a directory! Ignoring request to load." );
-            return;
+            return ttl;
         }
 
-        // Remove non-persistent items from cache
-        Map<Object, LinkValidationResult> persistentCache = new HashMap<Object, LinkValidationResult>();
-
-        for ( Map.Entry<Object, LinkValidationResult> resource : this.cache.entrySet() )
+        for ( Map.Entry<String, Long> entry : this.hostTtls.entrySet() )
         {
-            if ( resource.getValue().isPersistent() )
+            if ( entry.getKey().startsWith( "*." ) && ( host.endsWith( entry.getKey().substring( 1 ) )
+                || host.equals( entry.getKey().substring( 2 ) ) ) )
             {
-                persistentCache.put( resource.getKey(), resource.getValue() );
-
-                if ( LOG.isDebugEnabled() )
-                {
-                    LOG.debug( "[" + resource.getKey() + "] with result [" + resource.getValue()
-                        + "] is stored in the cache." );
-                }
+                return entry.getValue();
             }
         }
 
-        File dir = cacheFile.getParentFile();
-        if ( dir != null )
+        return null;
+    }
+
+    /**
+     * @param link a link, i.e. <code>http://maven.apache.org/index.html</code>.
+     * @return the lower case host of the link, or null if the link is not absolute.
+     */
+    private static String getHost( String link )
+    {
+        int start = link.indexOf( "://" );
+        if ( start == -1 )
         {
-            dir.mkdirs();
+            return null;
         }
+        start += 3;
 
-        
-        try ( ObjectOutputStream os = new ObjectOutputStream( new FileOutputStream( cacheFile ) ) )
+        int end = start;
+        while ( end < link.length() && "/:?#".indexOf( link.charAt( end ) ) == -1 )
         {
-            os.writeObject( persistentCache );
+            end++;
         }
+
+        return link.substring( start, end ).toLowerCase( Locale.ENGLISH );
     }
 
     /**
-     * Returns a LinkValidationResult for the given LinkValidationItem
-     * if it has been cached from a previous run, returns null otherwise.
+     * Refreshes an expired result in the background, if the revalidation budget allows it.
      *
-     * @param lvi The LinkValidationItem.
-     * @return LinkValidationResult
+     * @param lv the validator of the link.
+     * @param lvi the link to refresh.
+     * @param resourceKey the key of the cached result.
+     * @param stale the expired result.
      */
-    public LinkValidationResult getCachedResult( LinkValidationItem lvi )
+    private synchronized void refresh( final OnlineHTTPLinkValidator lv, final LinkValidationItem lvi,
+                                       final Object resourceKey, final LinkValidationResult stale )
     {
-        for ( LinkValidator lv :  getValidators() )
+        if ( this.refreshesScheduled >= this.revalidationBudget || !this.refreshingKeys.add( resourceKey ) )
         {
-            Object resourceKey = lv.getResourceKey( lvi );
+            return;
+        }
+
+        this.refreshesScheduled++;
 
-            if ( resourceKey != null && this.cache.containsKey( resourceKey ) )
+        if ( this.refresher == null )
+        {
+            this.refresher = Executors.newFixedThreadPool( REFRESH_THREADS, new ThreadFactory()
             {
-                if ( LOG.isDebugEnabled() )
+                @Override
+                public Thread newThread( Runnable r )
                 {
-                    LOG.debug( "The cache returns for [" + resourceKey + "] the result ["
-                        + this.cache.get( resourceKey ) + "]." );
+                    Thread t = new Thread( r, "linkcheck-cache-refresh" );
+                    t.setDaemon( true );
+                    return t;
                 }
+            } );
+        }
 
-                return this.cache.get( resourceKey );
-            }
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "The cached result for [" + resourceKey + "] has expired, refreshing it." );
         }
 
-        return null;
+        this.refresher.execute( new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    setCachedResult( resourceKey, lv.revalidateLink( lvi, stale ) );
+                }
+                finally
+                {
+                    refreshingKeys.remove( resourceKey );
+                }
+            }
+        } );
     }
 
     /**
-     * Puts the given LinkValidationResult into the cache.
-     *
-     * @param resourceKey The key to retrieve the result.
-     * @param lvr the LinkValidationResult to cache.
+     * Waits for the background refreshes of expired results to complete.
      */
-    public void setCachedResult( Object resourceKey, LinkValidationResult lvr )
+    private synchronized void awaitRefreshes()
     {
-        this.cache.put( resourceKey, lvr );
+        if ( this.refresher == null )
+        {
+            return;
+        }
+
+        this.refresher.shutdown();
+        try
+        {
+            if ( !this.refresher.awaitTermination( REFRESH_AWAIT_MINUTES, TimeUnit.MINUTES ) )
+            {
+                LOG.warn( "Expired cache entries are still being refreshed, giving up." );
+                this.refresher.shutdownNow();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            this.refresher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        this.refresher = null;
     }
 
     /**
@@ -351,7 +2200,7 @@ public class LinkValidatorManager
             LOG.debug( "Trying to check link to illegal URI: " + link, ex );
         }
 
-        if ( pattern.matches( "\\*+/?.*" ) && !link.startsWith( "/" ) && !link.startsWith( "./" ) )
+        if ( LEADING_WILDCARD.matcher( pattern ).matches() && !link.startsWith( "/" ) && !link.startsWith( "./" ) )
         {
             link = "./" + link;
         }
@@ -363,4 +2212,178 @@ public class LinkValidatorManager
 
         return SelectorUtils.match( pattern, link );
     }
+
+    /**
+     * The links of an origin, validated one after the other. When the rate limits do not allow the next request
+     * yet, the group gives its thread back to the other groups and is scheduled again when it should be allowed.
+     */
+    private final class HostGroup
+        implements Runnable
+    {
+        /** The origin of the links. */
+        private final String origin;
+
+        /** The validator of the links. */
+        private final OnlineHTTPLinkValidator validator;
+
+        /** The links to validate. */
+        private final List<ReferencedLink> links = new ArrayList<>();
+
+        /** Whether the links are validated ahead of the pages, counted as cache misses and against the budget. */
+        private final boolean batched;
+
+        /** The index of the next item to validate. */
+        private int next;
+
+        /** The executor running the groups. */
+        private ScheduledExecutorService executor;
+
+        /** Counted down when the group is done. */
+        private CountDownLatch done;
+
+        private HostGroup( String origin, OnlineHTTPLinkValidator validator, boolean batched )
+        {
+            this.origin = origin;
+            this.validator = validator;
+            this.batched = batched;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( next < links.size() && abortReason == null )
+                {
+                    ReferencedLink link = links.get( next );
+
+                    long wait = validator.tryAcquire( link.item.getLink() );
+                    if ( wait > 0 )
+                    {
+                        executor.schedule( this, wait, TimeUnit.MILLISECONDS );
+                        return;
+                    }
+
+                    link.result = validate( link.item, link.resolved );
+                    if ( batched )
+                    {
+                        cacheMisses.incrementAndGet();
+                        batchedKeys.add( link.key );
+                        countError( link.result );
+                        if ( !isStored( link.result ) )
+                        {
+                            link.lastSource = null;
+                            pinnedLinks.put( link.key, link );
+                        }
+                    }
+                    next++;
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                LOG.error( "Could not validate the links of " + origin, e );
+            }
+
+            done.countDown();
+        }
+    }
+
+    /**
+     * A link to validate, with the number of pages referencing it.
+     */
+    private static final class ReferencedLink
+    {
+        /** Orders the links by decreasing number of referencing pages. */
+        private static final Comparator<ReferencedLink> BY_POPULARITY = new Comparator<ReferencedLink>()
+        {
+            @Override
+            public int compare( ReferencedLink l1, ReferencedLink l2 )
+            {
+                return ( l1.pages < l2.pages ) ? 1 : ( ( l1.pages == l2.pages ) ? 0 : -1 );
+            }
+        };
+
+        /** The first item of the link. */
+        private final LinkValidationItem item;
+
+        /** The validators responsible for the link. */
+        private final ResolvedLink resolved;
+
+        /** The resource key of the link for the online validator. */
+        private final Object key;
+
+        /** The validator of the link. */
+        private final OnlineHTTPLinkValidator validator;
+
+        /** The origin of the link. */
+        private final String origin;
+
+        /** The number of distinct pages referencing the link. */
+        private int pages;
+
+        /** The result of the link, once validated in a group. */
+        private LinkValidationResult result;
+
+        /** The last page referencing the link, the items of a page coming together. */
+        private File lastSource;
+
+        private ReferencedLink( LinkValidationItem item, ResolvedLink resolved, Object key,
+                                OnlineHTTPLinkValidator validator, String origin )
+        {
+            this.item = item;
+            this.resolved = resolved;
+            this.key = key;
+            this.validator = validator;
+            this.origin = origin;
+        }
+
+        private void reference( File source )
+        {
+            if ( source == null || !source.equals( lastSource ) )
+            {
+                pages++;
+                lastSource = source;
+            }
+        }
+
+        /**
+         * @param source a page served with the result of the link.
+         * @return <code>true</code> once all the pages referencing the link are served.
+         */
+        private synchronized boolean release( File source )
+        {
+            if ( source == null || !source.equals( lastSource ) )
+            {
+                pages--;
+                lastSource = source;
+            }
+
+            return pages <= 0;
+        }
+    }
+
+    /**
+     * The validators responsible for a link, in order, with the key of the link for each of them.
+     */
+    private static final class ResolvedLink
+    {
+        private final LinkValidator[] validators;
+
+        private final Object[] keys;
+
+        private int size;
+
+        private ResolvedLink( int capacity )
+        {
+            this.validators = new LinkValidator[capacity];
+            this.keys = new Object[capacity];
+        }
+
+        private void add( LinkValidator lv, Object key )
+        {
+            validators[size] = lv;
+            keys[size] = key;
+            size++;
+        }
+    }
 }
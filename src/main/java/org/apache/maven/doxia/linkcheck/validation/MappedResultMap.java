@@ -0,0 +1,885 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An off-heap map of results: an open-addressing hash index over a memory-mapped file, the results being stored
+ * as compact records in the same file and only turned into objects when they are read. The heap footprint does
+ * not depend on the number of results, and the index written by a previous run is mapped again without being read.
+ * <p>
+ * The file starts with a header, followed by the table of slots and the records. A slot holds the hash of a key
+ * and the position of its record, <code>0</code> if the slot is free and <code>-1</code> if its key was removed;
+ * collisions are resolved by linear probing. A record holds its length and the key, then the type, status,
+ * persistent flag, HTTP status code and creation time of the result, its message and, for an HTTP result, its
+ * <code>ETag</code>, <code>Last-Modified</code> and <code>Location</code> headers. A replaced record is overwritten
+ * when the new one fits in it, otherwise it is left in place, the outdated records being dropped when the table
+ * grows, or before the file grows if they take most of the record area.
+ * </p>
+ * <p>
+ * The index is used by one process at a time, and its header records the length of the cache file it reflects,
+ * so that an index out of date is rebuilt from the cache file. Only <code>String</code> keys are supported, and
+ * the file is limited to 2 GB. The iterators are weakly consistent.
+ * </p>
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the results.
+ * @since 1.3
+ */
+final class MappedResultMap<K, V extends LinkValidationResult>
+    extends AbstractMap<K, V>
+    implements Closeable
+{
+    /** The first bytes of the file: "LCKI". */
+    private static final int MAGIC = 0x4C434B49;
+
+    /** The version of the format. */
+    private static final int VERSION = 1;
+
+    /** The size of the header: magic, version, capacity, size, used slots, end, cache file records and length. */
+    private static final int HEADER_SIZE = 40;
+
+    /** The size of a slot: the hash of the key and the position of its record. */
+    private static final int SLOT_SIZE = 12;
+
+    /** The initial number of slots, a power of two. */
+    private static final int MIN_CAPACITY = 1024;
+
+    /** The size of the initial record area, and of the chunks copied when the table grows. */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /** The position of a free slot. */
+    private static final long FREE = 0;
+
+    /** The position of a slot whose key was removed. */
+    private static final long REMOVED = -1;
+
+    /** The type of a plain result. */
+    private static final byte PLAIN = 0;
+
+    /** The type of an HTTP result. */
+    private static final byte HTTP = 1;
+
+    private final File file;
+
+    private final RandomAccessFile raf;
+
+    private final FileLock lock;
+
+    private MappedByteBuffer buffer;
+
+    /** The number of slots, a power of two. */
+    private int capacity;
+
+    /** The number of keys. */
+    private int size;
+
+    /** The number of slots which are not free, i.e. holding a key or a removed one. */
+    private int used;
+
+    /** The end of the records. */
+    private long end;
+
+    /** The length of the cache file the index reflects, negative if it was modified since. */
+    private long logLength;
+
+    /** The number of records of the cache file the index reflects. */
+    private int logRecords;
+
+    /** The size of the outdated records. */
+    private long garbage;
+
+    private MappedResultMap( File file, RandomAccessFile raf, FileLock lock )
+        throws IOException
+    {
+        this.file = file;
+        this.raf = raf;
+        this.lock = lock;
+
+        if ( !readHeader() )
+        {
+            initialize( MIN_CAPACITY );
+        }
+    }
+
+    /**
+     * Opens an index, creating it if needed. An index in another format is emptied.
+     *
+     * @param file the index file.
+     * @return the index, or null if it is used by another process.
+     * @throws IOException if the file cannot be opened.
+     */
+    static <K, V extends LinkValidationResult> MappedResultMap<K, V> open( File file )
+        throws IOException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        dir.mkdirs();
+
+        RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            FileLock lock;
+            try
+            {
+                lock = raf.getChannel().tryLock();
+            }
+            catch ( OverlappingFileLockException e )
+            {
+                lock = null;
+            }
+
+            if ( lock != null )
+            {
+                MappedResultMap<K, V> map = new MappedResultMap<>( file, raf, lock );
+                raf = null;
+                return map;
+            }
+
+            return null;
+        }
+        finally
+        {
+            if ( raf != null )
+            {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * @return the index file.
+     */
+    File getFile()
+    {
+        return this.file;
+    }
+
+    /**
+     * @return the length of the cache file the index reflects, negative if unknown.
+     */
+    synchronized long getLogLength()
+    {
+        return this.logLength;
+    }
+
+    /**
+     * @return the number of records of the cache file the index reflects.
+     */
+    synchronized int getLogRecords()
+    {
+        return this.logRecords;
+    }
+
+    /**
+     * Records that the index reflects the cache file, until it is modified again.
+     *
+     * @param length the length of the cache file.
+     * @param records the number of records of the cache file.
+     */
+    synchronized void setLog( long length, int records )
+    {
+        this.logLength = length;
+        this.logRecords = records;
+        writeHeader();
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public synchronized boolean containsKey( Object key )
+    {
+        return key instanceof String && find( (String) key, encode( (String) key ) ) >= 0;
+    }
+
+    @Override
+    public synchronized V get( Object key )
+    {
+        if ( !( key instanceof String ) )
+        {
+            return null;
+        }
+
+        int slot = find( (String) key, encode( (String) key ) );
+
+        return ( slot < 0 ) ? null : readValue( slotPosition( slot ) );
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key is not a <code>String</code>.
+     * @throws IllegalStateException if the index cannot grow.
+     */
+    @Override
+    public synchronized V put( K key, V value )
+    {
+        if ( !( key instanceof String ) )
+        {
+            throw new IllegalArgumentException( "Only String keys are supported: " + key );
+        }
+
+        String s = (String) key;
+        Record record = new Record( encode( s ), value );
+        long live = this.end - tableEnd() - this.garbage;
+        if ( this.garbage > live
+            && this.end + record.length + (long) this.capacity * SLOT_SIZE + live > this.buffer.capacity() )
+        {
+            // compact while the rehash still fits in the file, rather than grow it
+            rehash( this.capacity );
+        }
+
+        byte[] bytes = record.key;
+        int slot = find( s, bytes );
+        V previous = null;
+        if ( slot >= 0 )
+        {
+            long position = slotPosition( slot );
+            previous = readValue( position );
+
+            int allocated = this.buffer.getInt( (int) position );
+            if ( record.length <= allocated )
+            {
+                writeRecord( position, allocated, record );
+                modified();
+                return previous;
+            }
+            this.garbage += allocated;
+        }
+        else
+        {
+            if ( ( this.used + 1 ) * 3L > this.capacity * 2L )
+            {
+                rehash( ( this.size + 1 ) * 3L > this.capacity ? this.capacity * 2 : this.capacity );
+                slot = find( s, bytes );
+            }
+            slot = -1 - slot;
+            this.used++;
+            this.size++;
+        }
+
+        long position = this.end;
+        ensureLength( position + record.length );
+        writeRecord( position, record.length, record );
+        this.end = position + record.length;
+        setSlot( slot, hash( s ), position );
+        modified();
+
+        return previous;
+    }
+
+    @Override
+    public synchronized V remove( Object key )
+    {
+        if ( !( key instanceof String ) )
+        {
+            return null;
+        }
+
+        int slot = find( (String) key, encode( (String) key ) );
+        if ( slot < 0 )
+        {
+            return null;
+        }
+
+        long position = slotPosition( slot );
+        V previous = readValue( position );
+        this.garbage += this.buffer.getInt( (int) position );
+        setSlot( slot, 0, REMOVED );
+        this.size--;
+        modified();
+
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        initialize( MIN_CAPACITY );
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<K, V>>()
+        {
+            @Override
+            public int size()
+            {
+                return MappedResultMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator()
+            {
+                return new EntryIterator();
+            }
+        };
+    }
+
+    /**
+     * Writes the index to the disk and releases it.
+     */
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        try
+        {
+            this.buffer.force();
+            this.lock.release();
+        }
+        finally
+        {
+            this.raf.close();
+        }
+    }
+
+    /**
+     * Iterates over the slots in use.
+     */
+    private class EntryIterator
+        implements Iterator<Map.Entry<K, V>>
+    {
+        private int slot;
+
+        private Map.Entry<K, V> next;
+
+        private Map.Entry<K, V> last;
+
+        EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            this.next = null;
+            synchronized ( MappedResultMap.this )
+            {
+                for ( ; this.slot < capacity && this.next == null; this.slot++ )
+                {
+                    long position = slotPosition( this.slot );
+                    if ( position > 0 )
+                    {
+                        this.next = new SimpleImmutableEntry<>( readKey( position ), readValue( position ) );
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if ( this.next == null )
+            {
+                throw new NoSuchElementException();
+            }
+
+            this.last = this.next;
+            advance();
+
+            return this.last;
+        }
+
+        @Override
+        public void remove()
+        {
+            if ( this.last == null )
+            {
+                throw new IllegalStateException();
+            }
+
+            MappedResultMap.this.remove( this.last.getKey() );
+            this.last = null;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Private methods
+    // ----------------------------------------------------------------------
+
+    /**
+     * Maps the file and reads its header.
+     *
+     * @return <code>false</code> if the file is not a valid index.
+     */
+    private boolean readHeader()
+        throws IOException
+    {
+        long length = this.raf.length();
+        if ( length < HEADER_SIZE || length > Integer.MAX_VALUE )
+        {
+            return false;
+        }
+
+        this.buffer = this.raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, length );
+        if ( this.buffer.getInt( 0 ) != MAGIC || this.buffer.getInt( 4 ) != VERSION )
+        {
+            return false;
+        }
+
+        int slots = this.buffer.getInt( 8 );
+        int keys = this.buffer.getInt( 12 );
+        int usedSlots = this.buffer.getInt( 16 );
+        long recordsEnd = this.buffer.getInt( 20 ) & 0xFFFFFFFFL;
+        if ( slots < MIN_CAPACITY || Integer.bitCount( slots ) != 1 || keys < 0 || usedSlots < keys
+            || usedSlots >= slots || recordsEnd < HEADER_SIZE + (long) slots * SLOT_SIZE || recordsEnd > length )
+        {
+            return false;
+        }
+
+        this.capacity = slots;
+        this.size = keys;
+        this.used = usedSlots;
+        this.end = recordsEnd;
+        this.logRecords = this.buffer.getInt( 24 );
+        this.logLength = this.buffer.getLong( 28 );
+        this.garbage = this.end - tableEnd() - getLiveSize();
+
+        return true;
+    }
+
+    private void writeHeader()
+    {
+        this.buffer.putInt( 0, MAGIC );
+        this.buffer.putInt( 4, VERSION );
+        this.buffer.putInt( 8, this.capacity );
+        this.buffer.putInt( 12, this.size );
+        this.buffer.putInt( 16, this.used );
+        this.buffer.putInt( 20, (int) this.end );
+        this.buffer.putInt( 24, this.logRecords );
+        this.buffer.putLong( 28, this.logLength );
+    }
+
+    /**
+     * Empties the index, which is not rewritten but only overwritten, the file being mapped.
+     */
+    private void initialize( int slots )
+    {
+        long tableEnd = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        ensureLength( tableEnd + CHUNK_SIZE );
+        fill( HEADER_SIZE, tableEnd - HEADER_SIZE );
+
+        this.capacity = slots;
+        this.size = 0;
+        this.used = 0;
+        this.end = tableEnd;
+        this.garbage = 0;
+        this.logLength = -1;
+        this.logRecords = 0;
+        writeHeader();
+    }
+
+    /**
+     * Records that the index does not reflect the cache file anymore.
+     */
+    private void modified()
+    {
+        this.logLength = -1;
+        this.logRecords = 0;
+        writeHeader();
+    }
+
+    /**
+     * Grows the file to at least the given length, and maps it again.
+     */
+    private void ensureLength( long length )
+    {
+        if ( this.buffer != null && length <= this.buffer.capacity() )
+        {
+            return;
+        }
+
+        if ( length > Integer.MAX_VALUE )
+        {
+            throw new IllegalStateException( "The cache index is too large: " + this.file.getAbsolutePath() );
+        }
+
+        long newLength = Math.max( length, Math.min( 2L * ( this.buffer == null ? 0 : this.buffer.capacity() ),
+                                                     Integer.MAX_VALUE ) );
+        try
+        {
+            this.raf.setLength( newLength );
+            this.buffer = this.raf.getChannel().map( FileChannel.MapMode.READ_WRITE, 0, newLength );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Unable to grow the cache index: " + this.file.getAbsolutePath(), e );
+        }
+    }
+
+    private static int hash( String key )
+    {
+        // String.hashCode() is specified, so the hashes stay valid between runs
+        int h = key.hashCode();
+
+        return h ^ ( h >>> 16 );
+    }
+
+    private static byte[] encode( String s )
+    {
+        return s.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private long slotPosition( int slot )
+    {
+        return this.buffer.getLong( HEADER_SIZE + slot * SLOT_SIZE + 4 );
+    }
+
+    private void setSlot( int slot, int hash, long position )
+    {
+        int offset = HEADER_SIZE + slot * SLOT_SIZE;
+        this.buffer.putInt( offset, hash );
+        this.buffer.putLong( offset + 4, position );
+    }
+
+    /**
+     * @return the slot of the key, or <code>-1 - slot</code> of the free slot ending its probe sequence.
+     */
+    private int find( String key, byte[] bytes )
+    {
+        int hash = hash( key );
+        int mask = this.capacity - 1;
+        for ( int slot = hash & mask;; slot = ( slot + 1 ) & mask )
+        {
+            int offset = HEADER_SIZE + slot * SLOT_SIZE;
+            long position = this.buffer.getLong( offset + 4 );
+            if ( position == FREE )
+            {
+                return -1 - slot;
+            }
+            if ( position != REMOVED && this.buffer.getInt( offset ) == hash && keyEquals( position, bytes ) )
+            {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals( long position, byte[] bytes )
+    {
+        int offset = (int) position + 4;
+        if ( this.buffer.getInt( offset ) != bytes.length )
+        {
+            return false;
+        }
+
+        offset += 4;
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            if ( this.buffer.get( offset + i ) != bytes[i] )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes a record.
+     *
+     * @param position the position of the record.
+     * @param allocated the size allocated to the record, at least its length.
+     */
+    private void writeRecord( long position, int allocated, Record record )
+    {
+        LinkValidationResult value = record.value;
+        boolean http = value instanceof HTTPLinkValidationResult;
+
+        int offset = (int) position;
+        this.buffer.putInt( offset, allocated );
+        offset = putBytes( offset + 4, record.key );
+        this.buffer.put( offset, http ? HTTP : PLAIN );
+        this.buffer.put( offset + 1, (byte) value.getStatus() );
+        this.buffer.put( offset + 2, (byte) ( value.isPersistent() ? 1 : 0 ) );
+        this.buffer.putInt( offset + 3, http ? ( (HTTPLinkValidationResult) value ).getHttpStatusCode() : 0 );
+        this.buffer.putLong( offset + 7, value.getTimestamp() );
+        offset = putBytes( offset + 15, record.message );
+        if ( http )
+        {
+            offset = putBytes( offset, record.etag );
+            offset = putBytes( offset, record.lastModified );
+            putBytes( offset, record.location );
+        }
+    }
+
+    private static byte[] encodeNullable( String s )
+    {
+        return ( s == null ) ? null : encode( s );
+    }
+
+    private static int stringSize( byte[] bytes )
+    {
+        return 4 + ( ( bytes == null ) ? 0 : bytes.length );
+    }
+
+    /**
+     * @return the offset following the bytes.
+     */
+    private int putBytes( int offset, byte[] bytes )
+    {
+        if ( bytes == null )
+        {
+            this.buffer.putInt( offset, -1 );
+            return offset + 4;
+        }
+
+        this.buffer.putInt( offset, bytes.length );
+        write( offset + 4, bytes, bytes.length );
+
+        return offset + 4 + bytes.length;
+    }
+
+    private String getString( int offset )
+    {
+        int length = this.buffer.getInt( offset );
+        if ( length < 0 )
+        {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        read( offset + 4, bytes, length );
+
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+
+    private int getStringSize( int offset )
+    {
+        return 4 + Math.max( 0, this.buffer.getInt( offset ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private K readKey( long position )
+    {
+        return (K) getString( (int) position + 4 );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private V readValue( long position )
+    {
+        int offset = (int) position + 4;
+        offset += getStringSize( offset );
+
+        byte type = this.buffer.get( offset );
+        int status = this.buffer.get( offset + 1 );
+        boolean persistent = this.buffer.get( offset + 2 ) != 0;
+        int httpStatusCode = this.buffer.getInt( offset + 3 );
+        long timestamp = this.buffer.getLong( offset + 7 );
+        offset += 15;
+        String message = getString( offset );
+        if ( type == PLAIN )
+        {
+            return (V) new LinkValidationResult( status, persistent, message, timestamp );
+        }
+
+        offset += getStringSize( offset );
+        String etag = getString( offset );
+        offset += getStringSize( offset );
+        String lastModified = getString( offset );
+        offset += getStringSize( offset );
+        String location = getString( offset );
+
+        return (V) new HTTPLinkValidationResult( status, persistent, httpStatusCode, message, etag, lastModified,
+                                                 location, timestamp );
+    }
+
+    private long tableEnd()
+    {
+        return HEADER_SIZE + (long) this.capacity * SLOT_SIZE;
+    }
+
+    /**
+     * @return the size of the records of the keys.
+     */
+    private long getLiveSize()
+    {
+        long live = 0;
+        for ( int slot = 0; slot < this.capacity; slot++ )
+        {
+            long position = slotPosition( slot );
+            if ( position > 0 )
+            {
+                live += this.buffer.getInt( (int) position );
+            }
+        }
+
+        return live;
+    }
+
+    /**
+     * Rebuilds the table with the given number of slots, dropping the outdated records: the new table and the live
+     * records are first written after the current records, then moved to the start of the file. An interrupted
+     * rehash leaves the index marked as out of date.
+     */
+    private void rehash( int slots )
+    {
+        modified();
+
+        long live = getLiveSize();
+        long scratch = this.end;
+        long tableSize = (long) slots * SLOT_SIZE;
+        ensureLength( scratch + tableSize + live );
+        fill( scratch, tableSize );
+
+        // the records are written at their final position relative to the table
+        long delta = scratch - HEADER_SIZE;
+        long write = scratch + tableSize;
+        int mask = slots - 1;
+        for ( int slot = 0; slot < this.capacity; slot++ )
+        {
+            long position = slotPosition( slot );
+            if ( position <= 0 )
+            {
+                continue;
+            }
+
+            int length = this.buffer.getInt( (int) position );
+            copy( position, write, length );
+
+            int hash = this.buffer.getInt( HEADER_SIZE + slot * SLOT_SIZE );
+            int target = hash & mask;
+            while ( this.buffer.getLong( (int) ( scratch + target * SLOT_SIZE + 4 ) ) != FREE )
+            {
+                target = ( target + 1 ) & mask;
+            }
+            this.buffer.putInt( (int) ( scratch + target * SLOT_SIZE ), hash );
+            this.buffer.putLong( (int) ( scratch + target * SLOT_SIZE + 4 ), write - delta );
+
+            write += length;
+        }
+
+        copy( scratch, HEADER_SIZE, write - scratch );
+
+        this.capacity = slots;
+        this.used = this.size;
+        this.end = write - delta;
+        this.garbage = 0;
+        writeHeader();
+    }
+
+    /**
+     * Copies bytes within the file, forward, so that the target may overlap the source if it precedes it.
+     */
+    private void copy( long from, long to, long length )
+    {
+        byte[] chunk = new byte[(int) Math.min( CHUNK_SIZE, length )];
+        for ( long done = 0; done < length; done += chunk.length )
+        {
+            int n = (int) Math.min( chunk.length, length - done );
+            read( from + done, chunk, n );
+            write( to + done, chunk, n );
+        }
+    }
+
+    private void fill( long from, long length )
+    {
+        byte[] zeros = new byte[(int) Math.min( CHUNK_SIZE, length )];
+        for ( long done = 0; done < length; done += zeros.length )
+        {
+            write( from + done, zeros, (int) Math.min( zeros.length, length - done ) );
+        }
+    }
+
+    private void read( long offset, byte[] bytes, int length )
+    {
+        ByteBuffer view = this.buffer.duplicate();
+        // through Buffer, as ByteBuffer only overrides position since Java 9
+        ( (Buffer) view ).position( (int) offset );
+        view.get( bytes, 0, length );
+    }
+
+    private void write( long offset, byte[] bytes, int length )
+    {
+        ByteBuffer view = this.buffer.duplicate();
+        ( (Buffer) view ).position( (int) offset );
+        view.put( bytes, 0, length );
+    }
+
+    /**
+     * A result encoded, ready to be written.
+     */
+    private static final class Record
+    {
+        private final byte[] key;
+
+        private final LinkValidationResult value;
+
+        private final byte[] message;
+
+        private final byte[] etag;
+
+        private final byte[] lastModified;
+
+        private final byte[] location;
+
+        /** The length of the record: its length, key, type, status, flag, HTTP status code, time and strings. */
+        private final int length;
+
+        private Record( byte[] key, LinkValidationResult value )
+        {
+            this.key = key;
+            this.value = value;
+            this.message = encodeNullable( value.getMessage() );
+
+            int size = 4 + 4 + key.length + 1 + 1 + 1 + 4 + 8 + stringSize( this.message );
+            if ( value instanceof HTTPLinkValidationResult )
+            {
+                HTTPLinkValidationResult http = (HTTPLinkValidationResult) value;
+                this.etag = encodeNullable( http.getEtag() );
+                this.lastModified = encodeNullable( http.getLastModified() );
+                this.location = encodeNullable( http.getLocation() );
+                size += stringSize( this.etag ) + stringSize( this.lastModified ) + stringSize( this.location );
+            }
+            else
+            {
+                this.etag = null;
+                this.lastModified = null;
+                this.location = null;
+            }
+            this.length = size;
+        }
+    }
+}
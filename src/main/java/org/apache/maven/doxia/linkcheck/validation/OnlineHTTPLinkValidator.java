@@ -19,20 +19,43 @@ package org.apache.maven.doxia.linkcheck.validation;
  * under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
 import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpConnection;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
 import org.apache.commons.httpclient.HttpState;
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.NTCredentials;
 import org.apache.commons.httpclient.StatusLine;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
@@ -40,7 +63,10 @@ import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.EncodingUtil;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -70,6 +96,68 @@ public final class OnlineHTTPLinkValidator
     /** Use the head method to test pages. */
     private static final String HEAD_METHOD = "head";
 
+    /** The GET strategy reading the whole body. */
+    private static final String FULL_STRATEGY = "full";
+
+    /** The GET strategy requesting the first byte only. */
+    private static final String RANGE_STRATEGY = "range";
+
+    /** The GET strategy closing the connection once the headers are received. */
+    private static final String HEADERS_STRATEGY = "headers";
+
+    /** The largest unneeded body read to keep the connection alive rather than closing it. */
+    private static final int MAX_SKIPPED_BODY = 64 * 1024;
+
+    /** The maximum number of concurrent DNS lookups and connections opened when warming up. */
+    private static final int WARM_UP_THREADS = 16;
+
+    /** The time in milliseconds to wait for the DNS lookups when warming up, if no timeout is configured. */
+    private static final int WARM_UP_TIMEOUT = 10000;
+
+    /** The message of the links not validated before the deadline. */
+    public static final String NOT_CHECKED_WITHIN_BUDGET = "Not checked within budget";
+
+    /** The message of the links not validated once the validation was aborted. */
+    public static final String NOT_CHECKED_AFTER_ABORT = "Not checked, the validation was aborted";
+
+    /** Some web servers don't allow the default user-agent sent by httpClient. */
+    private static final String USER_AGENT = "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.0)";
+
+    /**
+     * The type of the HttpClient parameters which may be configured as strings. The other parameters expect
+     * objects, i.e. an <code>HttpVersion</code> or a <code>Map</code>, and are not applied.
+     */
+    private static final Map<String, Class<?>> SCALAR_PARAMETERS = new HashMap<>();
+
+    static
+    {
+        for ( String name : new String[] { HttpMethodParams.USE_EXPECT_CONTINUE,
+            HttpMethodParams.UNAMBIGUOUS_STATUS_LINE, HttpMethodParams.SINGLE_COOKIE_HEADER,
+            HttpMethodParams.STRICT_TRANSFER_ENCODING, HttpMethodParams.REJECT_HEAD_BODY,
+            HttpMethodParams.WARN_EXTRA_INPUT,
+            HttpClientParams.ALLOW_CIRCULAR_REDIRECTS, HttpClientParams.REJECT_RELATIVE_REDIRECT,
+            HttpClientParams.PREEMPTIVE_AUTHENTICATION, HttpConnectionParams.TCP_NODELAY,
+            HttpConnectionParams.STALE_CONNECTION_CHECK } )
+        {
+            SCALAR_PARAMETERS.put( name, Boolean.class );
+        }
+        for ( String name : new String[] { HttpMethodParams.SO_TIMEOUT, HttpMethodParams.HEAD_BODY_CHECK_TIMEOUT,
+            HttpMethodParams.BUFFER_WARN_TRIGGER_LIMIT, HttpMethodParams.STATUS_LINE_GARBAGE_LIMIT,
+            HttpClientParams.MAX_REDIRECTS, HttpConnectionParams.SO_SNDBUF, HttpConnectionParams.SO_RCVBUF,
+            HttpConnectionParams.SO_LINGER, HttpConnectionParams.CONNECTION_TIMEOUT,
+            HttpConnectionManagerParams.MAX_TOTAL_CONNECTIONS } )
+        {
+            SCALAR_PARAMETERS.put( name, Integer.class );
+        }
+        SCALAR_PARAMETERS.put( HttpClientParams.CONNECTION_MANAGER_TIMEOUT, Long.class );
+        for ( String name : new String[] { HttpMethodParams.USER_AGENT, HttpMethodParams.HTTP_ELEMENT_CHARSET,
+            HttpMethodParams.HTTP_CONTENT_CHARSET, HttpMethodParams.HTTP_URI_CHARSET,
+            HttpMethodParams.CREDENTIAL_CHARSET, HttpMethodParams.COOKIE_POLICY, HttpMethodParams.VIRTUAL_HOST } )
+        {
+            SCALAR_PARAMETERS.put( name, String.class );
+        }
+    }
+
     /** The http bean encapsuling all http parameters supported. */
     private HttpBean http;
 
@@ -79,6 +167,48 @@ public final class OnlineHTTPLinkValidator
     /** The HttpClient. */
     private transient HttpClient cl;
 
+    /** The connection manager of the HttpClient. */
+    private transient StatisticsHttpConnectionManager connectionManager;
+
+    /** The maximum number of redirections for a link. */
+    private int maxRedirects = MAX_NB_REDIRECT;
+
+    /** Fails fast links to hosts which repeatedly could not be reached. */
+    private transient HostCircuitBreaker circuitBreaker;
+
+    /** The rate limits of the requests. */
+    private transient RateLimiter rateLimiter;
+
+    /** The links whose request has been granted by the rate limiter ahead of their validation. */
+    private final Set<String> permits = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    /** The time in milliseconds after which links are not validated anymore, 0 or less for no deadline. */
+    private volatile long deadline = -1;
+
+    /** The message of the links not validated because of the deadline. */
+    private volatile String deadlineMessage = NOT_CHECKED_WITHIN_BUDGET;
+
+    /** Aborts the requests in flight at the deadline. */
+    private transient Timer deadlineTimer;
+
+    /** The requests in flight. */
+    private final Set<HttpMethod> inFlight = Collections.newSetFromMap( new ConcurrentHashMap<HttpMethod, Boolean>() );
+
+    /** The run scoped DNS cache filled when warming up. */
+    private transient HostResolver hostResolver = new HostResolver();
+
+    /** The redirect hops seen, per requested link. */
+    private Map<String, HTTPLinkValidationResult> redirects = new ConcurrentHashMap<>();
+
+    /**
+     * The final, non redirect, responses reached through a redirect in this run, per redirect target. The links
+     * requested directly are left to the cache of the manager, which bounds the results kept in memory.
+     */
+    private final Map<String, Response> finals = new ConcurrentHashMap<>();
+
+    /** The metrics of the requests per lower case host name. */
+    private final ConcurrentMap<String, HostMetrics> metrics = new ConcurrentHashMap<>();
+
     /**
      * Constructor: initialize settings, use "head" method.
      */
@@ -106,6 +236,11 @@ public final class OnlineHTTPLinkValidator
 
         this.http = bean;
 
+        this.circuitBreaker = new HostCircuitBreaker( bean.getCircuitBreakerThreshold(),
+                                                      bean.getCircuitBreakerCooldown() );
+
+        this.rateLimiter = new RateLimiter( bean.getRequestsPerSecond(), getHostRates( bean ) );
+
         initHttpClient();
     }
 
@@ -129,30 +264,397 @@ public final class OnlineHTTPLinkValidator
         this.baseURL = url;
     }
 
+    /**
+     * Returns the redirect hops seen, per requested link. Each hop is a warning result holding the redirect
+     * status and its <code>Location</code>; only the hops of permanent redirects are persistent.
+     *
+     * @return the redirect hops, never null.
+     */
+    public Map<String, HTTPLinkValidationResult> getRedirectCache()
+    {
+        return this.redirects;
+    }
+
+    /**
+     * Sets the map recording the redirect hops, i.e. to share the hops stored in a persistent cache.
+     * Links whose redirect chain passes through a known hop are resolved without requesting it again.
+     *
+     * @param redirects the redirect hops per requested link, thread safe, not null.
+     */
+    public void setRedirectCache( Map<String, HTTPLinkValidationResult> redirects )
+    {
+        this.redirects = redirects;
+    }
+
+    /**
+     * Returns the origin of a link, i.e. <code>https://maven.apache.org:443</code>: requests to the same
+     * origin can share keep-alive connections.
+     *
+     * @param link a link validated by this validator.
+     * @return the lower case scheme, host and port of the link, or null if the link is not a valid URL.
+     * @since 1.3
+     */
+    public String getOrigin( String link )
+    {
+        if ( link.startsWith( "/" ) )
+        {
+            if ( getBaseURL() == null )
+            {
+                return null;
+            }
+            link = getBaseURL() + link;
+        }
+
+        try
+        {
+            URL url = new URL( link );
+
+            int port = ( url.getPort() == -1 ) ? url.getDefaultPort() : url.getPort();
+
+            return ( url.getProtocol() + "://" + url.getHost() + ":" + port ).toLowerCase( Locale.ENGLISH );
+        }
+        catch ( MalformedURLException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Asks the rate limiter for the permission to request the given link, without waiting. Once granted, the
+     * permission is used by the next validation of the link. A link validated without the permission is not
+     * requested if the rate limits do not allow it right away.
+     *
+     * @param link the link to validate.
+     * @return 0 if the link may be requested now, otherwise the time in milliseconds to wait before asking again.
+     * @since 1.3
+     */
+    public long tryAcquire( String link )
+    {
+        if ( !this.rateLimiter.isLimited() || this.permits.contains( link ) )
+        {
+            return 0;
+        }
+
+        String resolved = link;
+        if ( link.startsWith( "/" ) && getBaseURL() != null )
+        {
+            resolved = getBaseURL() + link;
+        }
+
+        long wait = this.rateLimiter.tryAcquire( getHost( resolved ) );
+        if ( wait == 0 )
+        {
+            this.permits.add( link );
+        }
+
+        return wait;
+    }
+
+    /**
+     * Sets the deadline of the validation. Once it is reached, the requests in flight are aborted and the links
+     * are reported as {@link #NOT_CHECKED_WITHIN_BUDGET} without being requested.
+     *
+     * @param time the time in milliseconds of the deadline, 0 or less for no deadline.
+     * @since 1.3
+     */
+    public void setDeadline( long time )
+    {
+        setDeadline( time, NOT_CHECKED_WITHIN_BUDGET );
+    }
+
+    /**
+     * Sets the deadline of the validation. Once it is reached, the requests in flight are aborted and the links
+     * are reported as not checked, with the given message, without being requested.
+     *
+     * @param time the time in milliseconds of the deadline, 0 or less for no deadline.
+     * @param message the message of the links not checked, i.e. {@link #NOT_CHECKED_WITHIN_BUDGET} or
+     * {@link #NOT_CHECKED_AFTER_ABORT}.
+     * @since 1.3
+     */
+    public synchronized void setDeadline( long time, String message )
+    {
+        if ( this.deadlineTimer != null )
+        {
+            this.deadlineTimer.cancel();
+            this.deadlineTimer = null;
+        }
+
+        // set before the deadline, which is read first
+        this.deadlineMessage = message;
+        this.deadline = time;
+
+        if ( time > 0 )
+        {
+            final long scheduled = time;
+            this.deadlineTimer = new Timer( "linkcheck-deadline", true );
+            this.deadlineTimer.schedule( new TimerTask()
+            {
+                @Override
+                public void run()
+                {
+                    // the deadline may have been reset since, the requests in flight then belong to it
+                    if ( deadline != scheduled )
+                    {
+                        return;
+                    }
+
+                    if ( LOG.isWarnEnabled() )
+                    {
+                        LOG.warn( "The deadline of the external links is reached, aborting " + inFlight.size()
+                            + " request(s). The remaining links are reported as: " + deadlineMessage );
+                    }
+
+                    for ( HttpMethod hm : inFlight )
+                    {
+                        if ( deadline == scheduled )
+                        {
+                            hm.abort();
+                        }
+                    }
+                }
+            }, new Date( time ) );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the deadline has been reached.
+     */
+    private boolean isPastDeadline()
+    {
+        long time = this.deadline;
+
+        return time > 0 && System.currentTimeMillis() >= time;
+    }
+
+    /**
+     * @return the result of a link not validated before the deadline.
+     */
+    private LinkValidationResult notChecked()
+    {
+        return new LinkValidationResult( LinkcheckFileResult.NOT_CHECKED_LEVEL, false, this.deadlineMessage );
+    }
+
+    /**
+     * @return the number of requests which had to open a new connection.
+     * @since 1.3
+     */
+    public long getConnectionsOpened()
+    {
+        return this.connectionManager.getConnectionsOpened();
+    }
+
+    /**
+     * @return the number of requests which reused a pooled keep-alive connection.
+     * @since 1.3
+     */
+    public long getConnectionsReused()
+    {
+        return this.connectionManager.getConnectionsReused();
+    }
+
+    /**
+     * @return a snapshot of the usage of the connection pool.
+     * @since 1.3
+     */
+    public ConnectionPoolStatistics getConnectionPoolStatistics()
+    {
+        return this.connectionManager.getStatistics();
+    }
+
+    /**
+     * @return the metrics of the requests sent so far, per lower case host name followed by the port if it is
+     * not the default one.
+     * @since 1.3
+     */
+    public Map<String, HostMetrics> getHostMetrics()
+    {
+        return new TreeMap<>( this.metrics );
+    }
+
     /** {@inheritDoc} */
     @Override
     public LinkValidationResult validateLink( LinkValidationItem lvi )
     {
-        if ( this.cl == null )
+        return validateLink( lvi, null );
+    }
+
+    /**
+     * Prepares the validation of the given links: resolves all their hosts in parallel, so that links to hosts
+     * which do not resolve fail immediately, and pre-opens pooled connections to the most linked hosts if
+     * {@link HttpBean#getWarmUpConnections()} is set. Nothing is resolved locally when a proxy is used.
+     *
+     * @param links the links to be validated, as found in the pages.
+     */
+    public void warmUp( Collection<String> links )
+    {
+        if ( StringUtils.isNotEmpty( this.http.getProxyHost() ) )
         {
-            initHttpClient();
+            LOG.debug( "Using a proxy, not resolving hosts in advance." );
+            return;
         }
 
-        if ( this.http.getHttpClientParameters() != null )
+        final Map<String, Integer> linksPerHost = new HashMap<>();
+        Map<String, String> linkPerHost = new HashMap<>();
+        for ( String link : links )
         {
-            for ( Map.Entry<Object, Object> entry : this.http.getHttpClientParameters().entrySet() )
+            if ( link.startsWith( "/" ) )
             {
-                if ( entry.getValue() != null )
+                if ( getBaseURL() == null )
                 {
-                    System.setProperty( entry.getKey().toString(), entry.getValue().toString() );
+                    continue;
                 }
+                link = getBaseURL() + link;
+            }
+
+            String host = getHost( link );
+            if ( StringUtils.isEmpty( host ) )
+            {
+                continue;
+            }
+
+            Integer count = linksPerHost.get( host );
+            linksPerHost.put( host, ( count == null ) ? 1 : count + 1 );
+            if ( count == null )
+            {
+                linkPerHost.put( host, link );
+            }
+        }
+
+        if ( linksPerHost.isEmpty() )
+        {
+            return;
+        }
+
+        if ( LOG.isInfoEnabled() )
+        {
+            LOG.info( "Resolving " + linksPerHost.size() + " external host(s)..." );
+        }
+
+        int timeout = ( this.http.getTimeout() > 0 ) ? this.http.getTimeout() : WARM_UP_TIMEOUT;
+        this.hostResolver.resolveAll( linksPerHost.keySet(), WARM_UP_THREADS, timeout );
+
+        if ( this.http.getWarmUpConnections() <= 0 )
+        {
+            return;
+        }
+
+        List<String> hosts = new ArrayList<>( linksPerHost.keySet() );
+        Collections.sort( hosts, new Comparator<String>()
+        {
+            @Override
+            public int compare( String h1, String h2 )
+            {
+                return linksPerHost.get( h2 ).compareTo( linksPerHost.get( h1 ) );
+            }
+        } );
+
+        int opened = 0;
+        for ( String host : hosts )
+        {
+            if ( opened >= this.http.getWarmUpConnections() )
+            {
+                break;
+            }
+
+            if ( !this.hostResolver.isUnresolvable( host ) && openConnection( linkPerHost.get( host ) ) )
+            {
+                opened++;
             }
         }
 
-        // Some web servers don't allow the default user-agent sent by httpClient
-        System.setProperty( HttpMethodParams.USER_AGENT, "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.0)" );
-        this.cl.getParams().setParameter( HttpMethodParams.USER_AGENT,
-                                          "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.0)" );
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "Pre-opened " + opened + " connection(s)." );
+        }
+    }
+
+    /**
+     * Opens a connection to the host of the given link and releases it to the connection pool.
+     *
+     * @param link an absolute link.
+     * @return <code>true</code> if the connection could be opened.
+     */
+    private boolean openConnection( String link )
+    {
+        HttpConnection conn = null;
+        try
+        {
+            URL url = new URL( link );
+
+            HostConfiguration hc = (HostConfiguration) this.cl.getHostConfiguration().clone();
+            hc.setHost( url.getHost(), url.getPort(), url.getProtocol() );
+
+            conn = this.cl.getHttpConnectionManager().getConnectionWithTimeout( hc, this.http.getTimeout() );
+            if ( !conn.isOpen() )
+            {
+                conn.open();
+            }
+
+            return true;
+        }
+        catch ( Exception e )
+        {
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( "Could not open a connection for [" + link + "]: " + e );
+            }
+
+            return false;
+        }
+        finally
+        {
+            if ( conn != null )
+            {
+                conn.releaseConnection();
+            }
+        }
+    }
+
+    /**
+     * Revalidates a link whose result was cached by a previous run. If the cached result carries an
+     * <code>ETag</code> or a <code>Last-Modified</code> validator, a conditional request is sent and a
+     * <code>304 Not Modified</code> response confirms the cached result. Otherwise the link is validated again.
+     * The cached result is kept if the rate limits do not allow a request right away.
+     *
+     * @param lvi The LinkValidationItem to validate.
+     * @param cached The result cached for this link by a previous run.
+     * @return The LinkValidationResult.
+     * @since 1.3
+     */
+    public LinkValidationResult revalidateLink( LinkValidationItem lvi, LinkValidationResult cached )
+    {
+        if ( isPastDeadline() || tryAcquire( lvi.getLink() ) > 0 )
+        {
+            // better the previous result than none
+            return cached;
+        }
+
+        if ( cached instanceof HTTPLinkValidationResult && ( (HTTPLinkValidationResult) cached ).isRevalidatable() )
+        {
+            return validateLink( lvi, (HTTPLinkValidationResult) cached );
+        }
+
+        return validateLink( lvi, null );
+    }
+
+    /**
+     * Validates a link, conditionally if a cached result is given.
+     *
+     * @param lvi The LinkValidationItem to validate.
+     * @param cached The cached result to revalidate, may be null.
+     * @return The LinkValidationResult.
+     */
+    private LinkValidationResult validateLink( LinkValidationItem lvi, HTTPLinkValidationResult cached )
+    {
+        if ( this.cl == null )
+        {
+            initHttpClient();
+        }
+
+        if ( isPastDeadline() )
+        {
+            return notChecked();
+        }
 
         String link = lvi.getLink();
         String anchor = "";
@@ -182,91 +684,278 @@ public final class OnlineHTTPLinkValidator
                 link = getBaseURL() + link;
             }
 
-            HttpMethod hm = null;
-            try
+            String host = getHost( link );
+            if ( !this.circuitBreaker.allowRequest( host ) )
             {
-                hm = checkLink( link, 0 );
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "Circuit open for host [" + host + "], not checking [" + link + "] in page ["
+                        + lvi.getSource() + "]" );
+                }
+
+                return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false,
+                                                 "host unreachable (circuit open)" );
             }
-            catch ( Throwable t )
+
+            // a probe granted by the circuit breaker is released if no response or failure is recorded
+            Response response = null;
+            boolean recorded = false;
+            try
             {
-                if ( LOG.isDebugEnabled() )
+                if ( this.hostResolver.isUnresolvable( host ) )
+                {
+                    return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true,
+                                                     UnknownHostException.class.getName() + " : " + host );
+                }
+
+                if ( this.rateLimiter.isLimited() && !this.permits.remove( lvi.getLink() )
+                    && this.rateLimiter.tryAcquire( host ) > 0 )
                 {
-                    LOG.debug( "Received: [" + t + "] for [" + link + "] in page [" + lvi.getSource() + "]", t );
+                    return new LinkValidationResult( LinkcheckFileResult.UNKNOWN_LEVEL, false,
+                                                     "Not checked, the rate limit of " + host + " is reached" );
                 }
 
-                return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, t.getClass().getName()
-                    + " : " + t.getMessage() );
+                try
+                {
+                    response = checkLink( link, 0, cached, anchor.length() > 0, new HashSet<String>() );
+
+                    this.circuitBreaker.recordSuccess( host );
+                    recorded = true;
+                }
+                catch ( Throwable t )
+                {
+                    if ( isPastDeadline() )
+                    {
+                        // aborted at the deadline
+                        return notChecked();
+                    }
+
+                    if ( LOG.isDebugEnabled() )
+                    {
+                        LOG.debug( "Received: [" + t + "] for [" + link + "] in page [" + lvi.getSource() + "]", t );
+                    }
+
+                    recorded = true;
+                    boolean connectionFailure = isConnectionFailure( t );
+                    if ( connectionFailure )
+                    {
+                        if ( this.circuitBreaker.recordFailure( host ) && LOG.isWarnEnabled() )
+                        {
+                            LOG.warn( "Host [" + host + "] is unreachable, failing its links fast for "
+                                + this.http.getCircuitBreakerCooldown() + " ms." );
+                        }
+                    }
+                    else
+                    {
+                        this.circuitBreaker.recordSuccess( host );
+                    }
+
+                    // an unreachable host is worth remembering, as it costs a full timeout per check
+                    return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, connectionFailure,
+                                                     t.getClass().getName() + " : " + t.getMessage() );
+                }
+            }
+            finally
+            {
+                if ( !recorded )
+                {
+                    this.circuitBreaker.releaseProbe( host );
+                }
             }
 
-            if ( hm == null )
+            if ( response == null )
             {
                 return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false,
                                                  "Cannot retreive HTTP Status" );
             }
 
-            if ( hm.getStatusCode() == HttpStatus.SC_OK )
+            if ( response.statusCode == HttpStatus.SC_NOT_MODIFIED && cached != null )
+            {
+                if ( LOG.isDebugEnabled() )
+                {
+                    LOG.debug( "[" + link + "] is not modified since the previous run." );
+                }
+
+                return new HTTPLinkValidationResult( cached.getStatus(), true, cached.getHttpStatusCode(),
+                                                     HttpStatus.getStatusText( cached.getHttpStatusCode() ),
+                                                     ( response.etag != null ) ? response.etag : cached.getEtag(),
+                                                     ( response.lastModified != null ) ? response.lastModified
+                                                                     : cached.getLastModified() );
+            }
+
+            if ( response.statusCode == HttpStatus.SC_OK )
             {
                 // lets check if the anchor is present
                 if ( anchor.length() > 0 )
                 {
-                    String content = hm.getResponseBodyAsString();
-
-                    if ( !Anchors.matchesAnchor( content, anchor ) )
+                    if ( !Anchors.matchesAnchor( response.body, anchor ) && response.truncated )
+                    {
+                        // the anchor may be further in the page
+                        return new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false,
+                            "Anchor '" + anchor + "' not found in the first " + this.http.getMaxBodySize()
+                                + " bytes" );
+                    }
+                    else if ( !Anchors.matchesAnchor( response.body, anchor ) )
                     {
                         return new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false,
                             "Missing anchor '" + anchor + "'" );
                     }
                 }
-                return new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, hm.getStatusCode(),
-                                                     hm.getStatusText() );
+                return new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, response.statusCode,
+                                                     response.statusText, response.etag, response.lastModified );
             }
 
             String msg =
-                "Received: [" + hm.getStatusCode() + "] for [" + link + "] in page [" + lvi.getSource() + "]";
+                "Received: [" + response.statusCode + "] for [" + link + "] in page [" + lvi.getSource() + "]";
             // If there's a redirection ... add a warning
-            if ( hm.getStatusCode() == HttpStatus.SC_MOVED_PERMANENTLY
-                || hm.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY
-                || hm.getStatusCode() == HttpStatus.SC_TEMPORARY_REDIRECT )
+            if ( isRedirect( response.statusCode ) )
             {
                 LOG.warn( msg );
 
-                return new HTTPLinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, true, hm.getStatusCode(),
-                                                     hm.getStatusText() );
+                return new HTTPLinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, true, response.statusCode,
+                                                     response.statusText );
+            }
+
+            LOG.debug( msg );
+
+            return new HTTPLinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, !isTransient( response.statusCode ),
+                                                 response.statusCode, response.statusText );
+        }
+        catch ( Throwable t )
+        {
+            String msg = "Received: [" + t + "] for [" + link + "] in page [" + lvi.getSource() + "]";
+            if ( LOG.isDebugEnabled() )
+            {
+                LOG.debug( msg, t );
             }
+            else
+            {
+                LOG.error( msg );
+            }
+
+            return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, t.getMessage() );
+        }
+    }
+
+    /**
+     * @param bean the HTTP bean.
+     * @return the rates in requests per second per host pattern, ignoring the invalid ones.
+     */
+    private static Map<String, Double> getHostRates( HttpBean bean )
+    {
+        Map<String, Double> rates = new HashMap<>();
+        if ( bean.getHostRequestsPerSecond() == null )
+        {
+            return rates;
+        }
+
+        for ( Map.Entry<Object, Object> entry : bean.getHostRequestsPerSecond().entrySet() )
+        {
+            try
+            {
+                rates.put( entry.getKey().toString().trim(), Double.valueOf( entry.getValue().toString().trim() ) );
+            }
+            catch ( NumberFormatException e )
+            {
+                if ( LOG.isWarnEnabled() )
+                {
+                    LOG.warn( "Requests per second for host '" + entry.getKey() + "' is not a number. Ignoring!" );
+                }
+            }
+        }
+
+        return rates;
+    }
+
+    /**
+     * @param statusCode an HTTP status code.
+     * @return <code>true</code> if the status reports a temporary condition, not worth remembering.
+     */
+    private static boolean isTransient( int statusCode )
+    {
+        return statusCode == 429 || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE
+            || statusCode == HttpStatus.SC_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * @param link an absolute link.
+     * @return the host of the link, or null if the link is not a valid URL.
+     */
+    private static String getHost( String link )
+    {
+        try
+        {
+            return new URL( link ).getHost();
+        }
+        catch ( MalformedURLException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @param hm the executed method.
+     * @param name the response header name.
+     * @param defaultValue the value to return if the header was not sent.
+     * @return the value of the response header.
+     */
+    private static String getHeader( HttpMethod hm, String name, String defaultValue )
+    {
+        Header header = hm.getResponseHeader( name );
+
+        return ( header == null ) ? defaultValue : header.getValue();
+    }
 
-            LOG.debug( msg );
+    /**
+     * @param t the failure of a request.
+     * @return <code>true</code> if the host could not be reached at all or did not answer in time.
+     */
+    private static boolean isConnectionFailure( Throwable t )
+    {
+        return t instanceof ConnectException || t instanceof InterruptedIOException
+            || t instanceof UnknownHostException || t instanceof NoRouteToHostException;
+    }
 
-            return new HTTPLinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, hm.getStatusCode(),
-                                                 hm.getStatusText() );
+    /**
+     * Converts an extra HttpClient parameter configured as a string to the type declared by HttpClient.
+     *
+     * @param name the parameter name.
+     * @param value the configured value.
+     * @return the value as Boolean, Integer, Long or String, or null if the parameter is not a known scalar one
+     * or the value does not denote its type.
+     */
+    private static Object toParameterValue( String name, Object value )
+    {
+        Class<?> type = SCALAR_PARAMETERS.get( name );
+        if ( type == null )
+        {
+            return null;
         }
-        catch ( Throwable t )
+
+        if ( type.isInstance( value ) )
         {
-            String msg = "Received: [" + t + "] for [" + link + "] in page [" + lvi.getSource() + "]";
-            if ( LOG.isDebugEnabled() )
-            {
-                LOG.debug( msg, t );
-            }
-            else
-            {
-                LOG.error( msg );
-            }
+            return value;
+        }
 
-            return new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, t.getMessage() );
+        String str = value.toString().trim();
+        if ( type == String.class )
+        {
+            return str;
         }
-        finally
+
+        if ( type == Boolean.class )
         {
-            System.getProperties().remove( HttpMethodParams.USER_AGENT );
+            return ( "true".equalsIgnoreCase( str ) || "false".equalsIgnoreCase( str ) ) ? Boolean.valueOf( str )
+                            : null;
+        }
 
-            if ( this.http.getHttpClientParameters() != null )
-            {
-                for ( Map.Entry<Object, Object> entry : this.http.getHttpClientParameters().entrySet() )
-                {
-                    if ( entry.getValue() != null )
-                    {
-                        System.getProperties().remove( entry.getKey().toString() );
-                    }
-                }
-            }
+        try
+        {
+            return ( type == Long.class ) ? (Object) Long.valueOf( str ) : Integer.valueOf( str );
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
         }
     }
 
@@ -275,15 +964,62 @@ public final class OnlineHTTPLinkValidator
     {
         LOG.debug( "A new HttpClient instance is needed ..." );
 
-        this.cl = new HttpClient( new MultiThreadedHttpConnectionManager() );
+        this.connectionManager = new StatisticsHttpConnectionManager();
+        this.cl = new HttpClient( this.connectionManager );
 
         // Default params
-        if ( this.http.getTimeout() != 0 )
+        HttpConnectionManagerParams params = this.connectionManager.getParams();
+        params.setConnectionTimeout( ( this.http.getConnectionTimeout() >= 0 ) ? this.http.getConnectionTimeout()
+                        : this.http.getTimeout() );
+        params.setSoTimeout( ( this.http.getSocketTimeout() >= 0 ) ? this.http.getSocketTimeout()
+                        : this.http.getTimeout() );
+        params.setDefaultMaxConnectionsPerHost( Math.max( 1, this.http.getMaxConnectionsPerHost() ) );
+        params.setMaxTotalConnections( Math.max( 1, this.http.getMaxTotalConnections() ) );
+        this.connectionManager.setIdleConnectionTimeout( this.http.getIdleConnectionTimeout() );
+        this.cl.getParams().setBooleanParameter( HttpClientParams.ALLOW_CIRCULAR_REDIRECTS, true );
+        this.cl.getParams().setParameter( HttpMethodParams.USER_AGENT, USER_AGENT );
+
+        // Extra params are applied once to this client, never to the JVM wide system properties
+        if ( this.http.getHttpClientParameters() != null )
         {
-            this.cl.getHttpConnectionManager().getParams().setConnectionTimeout( this.http.getTimeout() );
-            this.cl.getHttpConnectionManager().getParams().setSoTimeout( this.http.getTimeout() );
+            for ( Map.Entry<Object, Object> entry : this.http.getHttpClientParameters().entrySet() )
+            {
+                if ( entry.getValue() != null )
+                {
+                    String name = entry.getKey().toString();
+                    Object value = toParameterValue( name, entry.getValue() );
+                    if ( value == null )
+                    {
+                        if ( LOG.isWarnEnabled() )
+                        {
+                            LOG.warn( "HttpClient parameter '" + name + "' cannot be set to '" + entry.getValue()
+                                + "'. Ignoring!" );
+                        }
+                        continue;
+                    }
+
+                    this.cl.getParams().setParameter( name, value );
+                    this.cl.getHttpConnectionManager().getParams().setParameter( name, value );
+                }
+            }
+
+            Object max = this.http.getHttpClientParameters().get( HttpClientParams.MAX_REDIRECTS );
+            if ( max != null )
+            {
+                try
+                {
+                    this.maxRedirects = Integer.parseInt( max.toString().trim() );
+                }
+                catch ( NumberFormatException e )
+                {
+                    if ( LOG.isWarnEnabled() )
+                    {
+                        LOG.warn( "HttpClient parameter '" + HttpClientParams.MAX_REDIRECTS
+                            + "' is not a number. Ignoring!" );
+                    }
+                }
+            }
         }
-        this.cl.getParams().setBooleanParameter( HttpClientParams.ALLOW_CIRCULAR_REDIRECTS, true );
 
         HostConfiguration hc = new HostConfiguration();
 
@@ -333,73 +1069,304 @@ public final class OnlineHTTPLinkValidator
     }
 
     /**
-     * Checks the given link.
+     * Checks the given link, following its redirects. Redirects and final responses seen before in this run
+     * are not requested again.
      *
      * @param link the link to check.
      * @param nbRedirect the number of current redirects.
-     * @return HttpMethod
+     * @param cached the cached result to send a conditional request for, may be null.
+     * @param needBody whether the body of a successful response is needed.
+     * @param visited the links already visited in this redirect chain.
+     * @return the response, or null if no status was received.
      * @throws IOException if something goes wrong.
      */
-    private HttpMethod checkLink( String link, int nbRedirect )
+    private Response checkLink( String link, int nbRedirect, HTTPLinkValidationResult cached, boolean needBody,
+                                Set<String> visited )
         throws IOException
     {
-        int max = MAX_NB_REDIRECT;
-        if ( this.http.getHttpClientParameters() != null
-            && this.http.getHttpClientParameters().get( HttpClientParams.MAX_REDIRECTS ) != null )
+        if ( nbRedirect > this.maxRedirects )
         {
-            try
+            throw new HttpException( "Maximum number of redirections (" + this.maxRedirects + ") exceeded" );
+        }
+
+        if ( !visited.add( link ) )
+        {
+            throw new HttpException( "Redirect loop detected at [" + link + "]" );
+        }
+
+        Response response = null;
+
+        // Only the requested link itself is revalidated, not the targets of its redirects
+        if ( cached == null || nbRedirect > 0 )
+        {
+            HTTPLinkValidationResult hop = this.redirects.get( link );
+            if ( hop != null )
             {
-                max =
-                    Integer.valueOf(
-                                     this.http.getHttpClientParameters().get( HttpClientParams.MAX_REDIRECTS )
-                                              .toString() ).intValue();
+                response = new Response( hop.getHttpStatusCode(), HttpStatus.getStatusText( hop.getHttpStatusCode() ),
+                                         null, null, hop.getLocation(), null );
             }
-            catch ( NumberFormatException e )
+            else if ( nbRedirect > 0 && !needBody )
             {
-                if ( LOG.isWarnEnabled() )
-                {
-                    LOG.warn( "HttpClient parameter '" + HttpClientParams.MAX_REDIRECTS
-                        + "' is not a number. Ignoring!" );
-                }
+                response = this.finals.get( link );
+            }
+
+            if ( response != null && LOG.isDebugEnabled() )
+            {
+                LOG.debug( "[" + link + "] is already known to return " + response.statusCode );
+            }
+        }
+
+        if ( response == null )
+        {
+            response = execute( link, ( nbRedirect == 0 ) ? cached : null, needBody );
+            if ( response == null )
+            {
+                return null;
             }
+
+            record( link, response, nbRedirect > 0 );
         }
-        if ( nbRedirect > max )
+
+        if ( !isRedirect( response.statusCode ) )
         {
-            throw new HttpException( "Maximum number of redirections (" + max + ") exceeded" );
+            return response;
         }
 
-        HttpMethod hm;
-        if ( HEAD_METHOD.equalsIgnoreCase( this.http.getMethod() ) )
+        if ( response.location == null )
         {
-            hm = new HeadMethod( link );
+            LOG.error( "Site sent redirect, but did not set Location header" );
+
+            return response;
         }
-        else if ( GET_METHOD.equalsIgnoreCase( this.http.getMethod() ) )
+
+        String newLink = response.location;
+
+        // Be careful to absolute/relative links
+        if ( !newLink.startsWith( "http://" ) && !newLink.startsWith( "https://" ) )
         {
-            hm = new GetMethod( link );
+            newLink = new URL( new URL( link ), newLink ).toString();
         }
-        else
+
+        if ( LOG.isDebugEnabled() )
+        {
+            LOG.debug( "[" + link + "] is redirected to [" + newLink + "]" );
+        }
+
+        Response target = checkLink( newLink, nbRedirect + 1, null, needBody, visited );
+
+        // Restore the response to "Moved permanently" | "Moved temporarily" | "Temporary redirect"
+        // if the new location is found to allow us to report it
+        if ( target != null && target.statusCode == HttpStatus.SC_OK && nbRedirect == 0 )
+        {
+            return response;
+        }
+
+        return target;
+    }
+
+    /**
+     * Executes a single request for the given link.
+     *
+     * @param link the link to request.
+     * @param cached the cached result to send a conditional request for, may be null.
+     * @param needBody whether the body of a successful response is needed.
+     * @return the response, or null if no status was received.
+     * @throws IOException if something goes wrong.
+     */
+    private Response execute( String link, HTTPLinkValidationResult cached, boolean needBody )
+        throws IOException
+    {
+        if ( HEAD_METHOD.equalsIgnoreCase( this.http.getMethod() ) )
+        {
+            return execute( new HeadMethod( link ), link, cached, needBody );
+        }
+        else if ( !GET_METHOD.equalsIgnoreCase( this.http.getMethod() ) )
         {
             if ( LOG.isErrorEnabled() )
             {
                 LOG.error( "Unsupported method: " + this.http.getMethod() + ", using 'get'." );
             }
-            hm = new GetMethod( link );
         }
 
-        // Default
-        hm.setFollowRedirects( this.http.isFollowRedirects() );
+        return execute( new GetMethod( link ), link, cached, needBody );
+    }
+
+    /**
+     * @return the configured GET strategy, <code>full</code> if unknown.
+     */
+    private String getStrategy()
+    {
+        String strategy = this.http.getGetStrategy();
+        if ( RANGE_STRATEGY.equalsIgnoreCase( strategy ) )
+        {
+            return RANGE_STRATEGY;
+        }
+        if ( HEADERS_STRATEGY.equalsIgnoreCase( strategy ) )
+        {
+            return HEADERS_STRATEGY;
+        }
+        if ( strategy != null && !FULL_STRATEGY.equalsIgnoreCase( strategy ) && LOG.isErrorEnabled() )
+        {
+            LOG.error( "Unsupported GET strategy: " + strategy + ", using 'full'." );
+        }
+
+        return FULL_STRATEGY;
+    }
+
+    /**
+     * @param hm an executed method.
+     * @return <code>true</code> if the response has a body left to read.
+     * @throws IOException if something goes wrong.
+     */
+    private static boolean hasBody( HttpMethodBase hm )
+        throws IOException
+    {
+        return hm.getResponseContentLength() != 0 && hm.getResponseBodyAsStream() != null;
+    }
+
+    /**
+     * Reads the body of the response, up to the given size.
+     *
+     * @param hm an executed method.
+     * @param out the stream to copy the body to.
+     * @param maxSize the maximum number of bytes to read, or 0 for no limit.
+     * @return <code>true</code> if the body is larger than the maximum size, and was not entirely read.
+     * @throws IOException if something goes wrong.
+     */
+    private static boolean readBody( HttpMethodBase hm, ByteArrayOutputStream out, int maxSize )
+        throws IOException
+    {
+        InputStream in = hm.getResponseBodyAsStream();
+        if ( in == null )
+        {
+            return false;
+        }
+
+        byte[] buffer = new byte[8192];
+        int n;
+        while ( ( n = in.read( buffer, 0, readSize( buffer.length, out.size(), maxSize ) ) ) != -1 )
+        {
+            out.write( buffer, 0, n );
+            if ( maxSize > 0 && out.size() > maxSize )
+            {
+                // keep the body to the maximum size
+                byte[] bytes = out.toByteArray();
+                out.reset();
+                out.write( bytes, 0, maxSize );
+                return true;
+            }
+        }
 
+        return false;
+    }
+
+    /**
+     * @param bufferSize the size of the read buffer.
+     * @param read the number of bytes already read.
+     * @param maxSize the maximum number of bytes to read, or 0 for no limit.
+     * @return the number of bytes to read next, one more than the remaining ones to detect a larger body.
+     */
+    private static int readSize( int bufferSize, int read, int maxSize )
+    {
+        if ( maxSize <= 0 )
+        {
+            return bufferSize;
+        }
+
+        return (int) Math.min( bufferSize, (long) maxSize - read + 1 );
+    }
+
+    /**
+     * @param link an absolute link.
+     * @return the metrics of the host of the link, and of its port if not the default one.
+     */
+    private HostMetrics getMetrics( String link )
+    {
+        String host;
         try
         {
             URL url = new URL( link );
+            host = url.getHost().toLowerCase( Locale.ENGLISH );
+            if ( url.getPort() != -1 )
+            {
+                host += ":" + url.getPort();
+            }
+        }
+        catch ( MalformedURLException e )
+        {
+            host = "";
+        }
+
+        HostMetrics hostMetrics = this.metrics.get( host );
+        if ( hostMetrics == null )
+        {
+            hostMetrics = new HostMetrics( host );
+            HostMetrics previous = this.metrics.putIfAbsent( host, hostMetrics );
+            if ( previous != null )
+            {
+                hostMetrics = previous;
+            }
+        }
+
+        return hostMetrics;
+    }
+
+    /**
+     * Executes the given method.
+     *
+     * @param hm the method to execute.
+     * @param link the link to request.
+     * @param cached the cached result to send a conditional request for, may be null.
+     * @param needBody whether the body of a successful response is needed.
+     * @return the response, or null if no status was received.
+     * @throws IOException if something goes wrong.
+     */
+    private Response execute( HttpMethodBase hm, String link, HTTPLinkValidationResult cached, boolean needBody )
+        throws IOException
+    {
+        // Default
+        hm.setFollowRedirects( this.http.isFollowRedirects() );
+
+        if ( cached != null )
+        {
+            if ( cached.getEtag() != null )
+            {
+                hm.setRequestHeader( "If-None-Match", cached.getEtag() );
+            }
+            if ( cached.getLastModified() != null )
+            {
+                hm.setRequestHeader( "If-Modified-Since", cached.getLastModified() );
+            }
+        }
+
+        String strategy = getStrategy();
+        boolean ranged = hm instanceof GetMethod && !needBody && RANGE_STRATEGY.equals( strategy );
+        if ( ranged )
+        {
+            hm.setRequestHeader( "Range", "bytes=0-0" );
+        }
 
-            cl.getHostConfiguration().setHost( url.getHost(), url.getPort(), url.getProtocol() );
+        // registered before checking the deadline, so that the request is either aborted or not sent
+        this.inFlight.add( hm );
+        if ( isPastDeadline() )
+        {
+            this.inFlight.remove( hm );
+            throw new InterruptedIOException( this.deadlineMessage );
+        }
+
+        HostMetrics hostMetrics = getMetrics( link );
+        long start = System.currentTimeMillis();
+        try
+        {
 
+            // the link is absolute: the client derives the target host from it without touching shared state
             cl.executeMethod( hm );
 
             StatusLine sl = hm.getStatusLine();
             if ( sl == null )
             {
+                hostMetrics.recordError( System.currentTimeMillis() - start );
+
                 if ( LOG.isErrorEnabled() )
                 {
                     LOG.error( "Unknown error validating link : " + link );
@@ -408,63 +1375,159 @@ public final class OnlineHTTPLinkValidator
                 return null;
             }
 
-            if ( hm.getStatusCode() == HttpStatus.SC_MOVED_PERMANENTLY
-                || hm.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY
-                || hm.getStatusCode() == HttpStatus.SC_TEMPORARY_REDIRECT )
+            int statusCode = hm.getStatusCode();
+            String statusText = hm.getStatusText();
+            String body = null;
+            boolean truncated = false;
+            long bytes = 0;
+            if ( needBody && statusCode == HttpStatus.SC_OK )
             {
-                Header locationHeader = hm.getResponseHeader( "location" );
-
-                if ( locationHeader == null )
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                truncated = readBody( hm, raw, this.http.getMaxBodySize() );
+                if ( truncated )
                 {
-                    LOG.error( "Site sent redirect, but did not set Location header" );
-
-                    return hm;
+                    // do not download the rest of the page
+                    hm.abort();
                 }
-
-                String newLink = locationHeader.getValue();
-
-                // Be careful to absolute/relative links
-                if ( !newLink.startsWith( "http://" ) && !newLink.startsWith( "https://" ) )
+                body = EncodingUtil.getString( raw.toByteArray(), hm.getResponseCharSet() );
+                bytes = raw.size();
+            }
+            else if ( hm instanceof GetMethod && hasBody( hm ) )
+            {
+                long length = hm.getResponseContentLength();
+                if ( HEADERS_STRATEGY.equals( strategy ) || ( ranged && statusCode != HttpStatus.SC_PARTIAL_CONTENT
+                    && ( length < 0 || length > MAX_SKIPPED_BODY ) ) )
                 {
-                    if ( newLink.startsWith( "/" ) )
-                    {
-                        URL oldUrl = new URL( link );
-
-                        newLink =
-                            oldUrl.getProtocol() + "://" + oldUrl.getHost()
-                                + ( oldUrl.getPort() > 0 ? ":" + oldUrl.getPort() : "" ) + newLink;
-                    }
-                    else
-                    {
-                        newLink = link + newLink;
-                    }
+                    // closing the connection is cheaper than reading a large body
+                    hm.abort();
                 }
-
-                HttpMethod oldHm = hm;
-
-                if ( LOG.isDebugEnabled() )
+                else
                 {
-                    LOG.debug( "[" + link + "] is redirected to [" + newLink + "]" );
+                    // the unread body is skipped when the connection is released
+                    bytes = Math.max( 0, length );
                 }
+            }
 
-                oldHm.releaseConnection();
+            hostMetrics.recordResponse( statusCode, System.currentTimeMillis() - start, bytes );
 
-                hm = checkLink( newLink, nbRedirect + 1 );
+            // the resource exists: the range is only unsatisfiable for an empty resource
+            if ( ranged && ( statusCode == HttpStatus.SC_PARTIAL_CONTENT
+                || statusCode == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE ) )
+            {
+                statusCode = HttpStatus.SC_OK;
+                statusText = HttpStatus.getStatusText( HttpStatus.SC_OK );
+            }
 
-                // Restore the hm to "Moved permanently" | "Moved temporarily" | "Temporary redirect"
-                // if the new location is found to allow us to report it
-                if ( hm.getStatusCode() == HttpStatus.SC_OK && nbRedirect == 0 )
-                {
-                    return oldHm;
-                }
+            return new Response( statusCode, statusText, getHeader( hm, "ETag", null ),
+                                 getHeader( hm, "Last-Modified", null ), getHeader( hm, "Location", null ), body,
+                                 truncated );
+        }
+        catch ( IOException e )
+        {
+            long latency = System.currentTimeMillis() - start;
+            if ( e instanceof InterruptedIOException )
+            {
+                hostMetrics.recordTimeout( latency );
+            }
+            else if ( isConnectionFailure( e ) )
+            {
+                hostMetrics.recordConnectionFailure( latency );
+            }
+            else
+            {
+                hostMetrics.recordError( latency );
             }
 
+            throw e;
         }
         finally
         {
+            this.inFlight.remove( hm );
             hm.releaseConnection();
         }
+    }
+
+    /**
+     * Remembers a response for the rest of the run: the hop of a redirect, or the final status of a redirect
+     * target. Only permanent redirects are marked persistent, to be stored in the cache across runs.
+     *
+     * @param link the requested link.
+     * @param response the response received.
+     * @param redirected whether the link was reached through a redirect.
+     */
+    private void record( String link, Response response, boolean redirected )
+    {
+        if ( isRedirect( response.statusCode ) )
+        {
+            if ( response.location != null )
+            {
+                this.redirects.put( link, new HTTPLinkValidationResult( LinkcheckFileResult.WARNING_LEVEL,
+                                                                        response.statusCode
+                                                                            == HttpStatus.SC_MOVED_PERMANENTLY,
+                                                                        response.statusCode,
+                                                                        response.statusText, null, null,
+                                                                        response.location ) );
+            }
+        }
+        else if ( redirected && response.statusCode != HttpStatus.SC_NOT_MODIFIED )
+        {
+            this.finals.put( link, new Response( response.statusCode, response.statusText, response.etag,
+                                                 response.lastModified, null, null ) );
+        }
+    }
+
+    /**
+     * @param statusCode an HTTP status code.
+     * @return <code>true</code> if the status code is a redirect reported as a warning.
+     */
+    private static boolean isRedirect( int statusCode )
+    {
+        return statusCode == HttpStatus.SC_MOVED_PERMANENTLY || statusCode == HttpStatus.SC_MOVED_TEMPORARILY
+            || statusCode == HttpStatus.SC_TEMPORARY_REDIRECT;
+    }
+
+    /**
+     * The outcome of a single request, detached from its connection.
+     */
+    private static final class Response
+    {
+        /** The status code. */
+        private final int statusCode;
+
+        /** The status text. */
+        private final String statusText;
+
+        /** The <code>ETag</code> header, if any. */
+        private final String etag;
+
+        /** The <code>Last-Modified</code> header, if any. */
+        private final String lastModified;
+
+        /** The <code>Location</code> header, if any. */
+        private final String location;
+
+        /** The body, only read if needed. */
+        private final String body;
+
+        /** Whether the body was cut to the maximum body size. */
+        private final boolean truncated;
+
+        private Response( int statusCode, String statusText, String etag, String lastModified, String location,
+                          String body )
+        {
+            this( statusCode, statusText, etag, lastModified, location, body, false );
+        }
 
-        return hm;
+        private Response( int statusCode, String statusText, String etag, String lastModified, String location,
+                          String body, boolean truncated )
+        {
+            this.statusCode = statusCode;
+            this.statusText = statusText;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.location = location;
+            this.body = body;
+            this.truncated = truncated;
+        }
     }
 }
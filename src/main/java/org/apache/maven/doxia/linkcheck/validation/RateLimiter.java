@@ -0,0 +1,182 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Token bucket rate limits on the requests sent, globally and per host. A bucket holds up to one second
+ * worth of requests, so that short bursts are allowed while the sustained rate is capped.
+ * The limiter never blocks: {@link #tryAcquire(String)} tells how long to wait instead, for the caller to try again
+ * later without holding its thread.
+ *
+ * @since 1.3
+ */
+class RateLimiter
+{
+    /** The global bucket, null if the global rate is not limited. */
+    private final TokenBucket global;
+
+    /** The rates in requests per second per lower case host pattern, i.e. a host name or <code>*.domain</code>. */
+    private final Map<String, Double> hostRates = new HashMap<>();
+
+    /** The bucket per lower case host name, null if the host rate is not limited. */
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+
+    /**
+     * @param rate the global rate in requests per second, 0 or less for no limit.
+     * @param hostRates the rates in requests per second per host name or <code>*.domain</code> pattern.
+     */
+    RateLimiter( double rate, Map<String, Double> hostRates )
+    {
+        this.global = ( rate > 0 ) ? new TokenBucket( rate ) : null;
+
+        if ( hostRates != null )
+        {
+            for ( Map.Entry<String, Double> entry : hostRates.entrySet() )
+            {
+                this.hostRates.put( entry.getKey().toLowerCase( Locale.ENGLISH ), entry.getValue() );
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if any rate is limited.
+     */
+    boolean isLimited()
+    {
+        return global != null || !hostRates.isEmpty();
+    }
+
+    /**
+     * Takes a token for a request to the given host if both the global and the host buckets have one.
+     *
+     * @param host the host name, may be null.
+     * @return 0 if the request may be sent now, otherwise the time in milliseconds to wait before trying again.
+     */
+    synchronized long tryAcquire( String host )
+    {
+        long now = System.nanoTime();
+        TokenBucket bucket = getBucket( host );
+
+        long wait = 0;
+        if ( global != null )
+        {
+            wait = global.getWait( now );
+        }
+        if ( bucket != null )
+        {
+            wait = Math.max( wait, bucket.getWait( now ) );
+        }
+
+        if ( wait > 0 )
+        {
+            // rounded up, not to try again before the token is there
+            return ( wait + 999999 ) / 1000000;
+        }
+
+        if ( global != null )
+        {
+            global.take();
+        }
+        if ( bucket != null )
+        {
+            bucket.take();
+        }
+
+        return 0;
+    }
+
+    private TokenBucket getBucket( String host )
+    {
+        if ( host == null || hostRates.isEmpty() )
+        {
+            return null;
+        }
+
+        String key = host.toLowerCase( Locale.ENGLISH );
+        if ( buckets.containsKey( key ) )
+        {
+            return buckets.get( key );
+        }
+
+        Double rate = hostRates.get( key );
+        if ( rate == null )
+        {
+            for ( Map.Entry<String, Double> entry : hostRates.entrySet() )
+            {
+                if ( entry.getKey().startsWith( "*." ) && ( key.endsWith( entry.getKey().substring( 1 ) )
+                    || key.equals( entry.getKey().substring( 2 ) ) ) )
+                {
+                    rate = entry.getValue();
+                    break;
+                }
+            }
+        }
+
+        TokenBucket bucket = ( rate != null && rate > 0 ) ? new TokenBucket( rate ) : null;
+        buckets.put( key, bucket );
+
+        return bucket;
+    }
+
+    /**
+     * A bucket refilled at a constant rate, holding up to one second worth of tokens and at least one.
+     */
+    private static final class TokenBucket
+    {
+        private final double rate;
+
+        private final double capacity;
+
+        private double tokens;
+
+        private long last = System.nanoTime();
+
+        private TokenBucket( double rate )
+        {
+            this.rate = rate;
+            this.capacity = Math.max( 1, rate );
+            this.tokens = capacity;
+        }
+
+        /**
+         * @param now the current time in nanoseconds.
+         * @return 0 if a token is available, otherwise the time in nanoseconds until one is.
+         */
+        private long getWait( long now )
+        {
+            if ( now > last )
+            {
+                tokens = Math.min( capacity, tokens + ( now - last ) * rate / 1000000000 );
+                last = now;
+            }
+
+            return ( tokens >= 1 ) ? 0 : (long) Math.ceil( ( 1 - tokens ) / rate * 1000000000 );
+        }
+
+        private void take()
+        {
+            tokens -= 1;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of the results which are not stored in the cache file, evicting the least recently used ones.
+ * <p>
+ * The results are spread by key over segments, each one an access ordered {@link LinkedHashMap} with its share of
+ * the maximum number of results, so that the threads validating the links seldom wait for each other.
+ * </p>
+ *
+ * @since 1.3
+ */
+final class ResultLruCache
+{
+    /** The number of segments of a bounded cache. */
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    /** The results evicted so far. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxResults the maximum number of results, negative for no limit.
+     */
+    ResultLruCache( int maxResults )
+    {
+        // small caches are not split, for the limit to be exact
+        int count = ( maxResults < 0 || maxResults >= SEGMENTS * SEGMENTS ) ? SEGMENTS : 1;
+        this.segments = new Segment[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            int max = ( maxResults < 0 ) ? -1 : maxResults / count + ( ( i < maxResults % count ) ? 1 : 0 );
+            this.segments[i] = new Segment( max );
+        }
+    }
+
+    /**
+     * @param key the key of a result.
+     * @return the result, null if not cached.
+     */
+    LinkValidationResult get( Object key )
+    {
+        Segment segment = segmentFor( key );
+        synchronized ( segment )
+        {
+            return segment.get( key );
+        }
+    }
+
+    /**
+     * Caches a result, evicting the least recently used one if the cache is full.
+     *
+     * @param key the key of the result.
+     * @param result the result.
+     */
+    void put( Object key, LinkValidationResult result )
+    {
+        Segment segment = segmentFor( key );
+        synchronized ( segment )
+        {
+            if ( segment.max != 0 )
+            {
+                segment.put( key, result );
+            }
+        }
+    }
+
+    /**
+     * @param key the key of a result.
+     * @return the removed result, null if not cached.
+     */
+    LinkValidationResult remove( Object key )
+    {
+        Segment segment = segmentFor( key );
+        synchronized ( segment )
+        {
+            return segment.remove( key );
+        }
+    }
+
+    /**
+     * @return the number of results cached.
+     */
+    int size()
+    {
+        int size = 0;
+        for ( Segment segment : this.segments )
+        {
+            synchronized ( segment )
+            {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return the number of results evicted so far.
+     */
+    long getEvictions()
+    {
+        return this.evictions.get();
+    }
+
+    void clear()
+    {
+        for ( Segment segment : this.segments )
+        {
+            synchronized ( segment )
+            {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment segmentFor( Object key )
+    {
+        int h = key.hashCode();
+        h ^= ( h >>> 16 );
+
+        return this.segments[( h & 0x7fffffff ) % this.segments.length];
+    }
+
+    /**
+     * A segment of the cache, in access order.
+     */
+    private final class Segment
+        extends LinkedHashMap<Object, LinkValidationResult>
+    {
+        private static final long serialVersionUID = 1L;
+
+        /** The maximum number of results of the segment, negative for no limit. */
+        private final int max;
+
+        private Segment( int max )
+        {
+            super( 16, 0.75f, true );
+            this.max = max;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<Object, LinkValidationResult> eldest )
+        {
+            if ( this.max >= 0 && size() > this.max )
+            {
+                evictions.incrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+/**
+ * A pooling connection manager keeping statistics of its usage: how many connections are handed out already
+ * open, i.e. reused keep-alive connections, versus new ones, how many are in use, and how long requests wait
+ * for a connection. Idle connections are closed once in a while, on demand.
+ *
+ * @since 1.3
+ */
+class StatisticsHttpConnectionManager
+    extends MultiThreadedHttpConnectionManager
+{
+    /** The number of connections handed out which had to be opened. */
+    private final AtomicLong opened = new AtomicLong();
+
+    /** The number of connections handed out already open. */
+    private final AtomicLong reused = new AtomicLong();
+
+    /** The number of connections currently handed out. */
+    private final AtomicInteger leased = new AtomicInteger();
+
+    /** The highest number of connections handed out at the same time. */
+    private final AtomicInteger peakLeased = new AtomicInteger();
+
+    /** The total time in nanoseconds waited for a connection. */
+    private final AtomicLong waitTime = new AtomicLong();
+
+    /** The longest time in nanoseconds waited for a connection. */
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    /** The number of requests which gave up waiting for a connection. */
+    private final AtomicLong waitTimeouts = new AtomicLong();
+
+    /** The time of the last check for idle connections. */
+    private final AtomicLong lastIdleCheck = new AtomicLong( System.currentTimeMillis() );
+
+    /** The idle time in milliseconds after which a connection is closed, 0 to keep idle connections. */
+    private volatile long idleConnectionTimeout;
+
+    /**
+     * @param timeout the idle time in milliseconds after which a pooled connection is closed, 0 to keep them.
+     */
+    void setIdleConnectionTimeout( long timeout )
+    {
+        this.idleConnectionTimeout = timeout;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public HttpConnection getConnectionWithTimeout( HostConfiguration hostConfiguration, long timeout )
+        throws ConnectionPoolTimeoutException
+    {
+        closeIdleConnections();
+
+        long start = System.nanoTime();
+        HttpConnection conn;
+        try
+        {
+            conn = super.getConnectionWithTimeout( hostConfiguration, timeout );
+        }
+        catch ( ConnectionPoolTimeoutException e )
+        {
+            waitTimeouts.incrementAndGet();
+            throw e;
+        }
+
+        long waited = System.nanoTime() - start;
+        waitTime.addAndGet( waited );
+        long max = maxWaitTime.get();
+        while ( waited > max && !maxWaitTime.compareAndSet( max, waited ) )
+        {
+            max = maxWaitTime.get();
+        }
+
+        int inUse = leased.incrementAndGet();
+        int peak = peakLeased.get();
+        while ( inUse > peak && !peakLeased.compareAndSet( peak, inUse ) )
+        {
+            peak = peakLeased.get();
+        }
+
+        if ( conn.isOpen() )
+        {
+            reused.incrementAndGet();
+        }
+        else
+        {
+            opened.incrementAndGet();
+        }
+
+        return conn;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void releaseConnection( HttpConnection conn )
+    {
+        // before the connection can be handed out again
+        leased.decrementAndGet();
+
+        super.releaseConnection( conn );
+    }
+
+    /**
+     * Closes the connections idle for longer than the idle timeout, at most twice per timeout.
+     */
+    private void closeIdleConnections()
+    {
+        long timeout = this.idleConnectionTimeout;
+        if ( timeout <= 0 )
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long last = lastIdleCheck.get();
+        if ( now - last >= timeout / 2 && lastIdleCheck.compareAndSet( last, now ) )
+        {
+            closeIdleConnections( timeout );
+        }
+    }
+
+    /**
+     * @return the number of connections handed out which had to be opened.
+     */
+    long getConnectionsOpened()
+    {
+        return opened.get();
+    }
+
+    /**
+     * @return the number of connections handed out already open.
+     */
+    long getConnectionsReused()
+    {
+        return reused.get();
+    }
+
+    /**
+     * @return a snapshot of the statistics of this pool.
+     */
+    ConnectionPoolStatistics getStatistics()
+    {
+        return new ConnectionPoolStatistics( opened.get(), reused.get(), leased.get(), peakLeased.get(),
+                                             waitTime.get() / 1000000, maxWaitTime.get() / 1000000,
+                                             waitTimeouts.get() );
+    }
+}
@@ -0,0 +1,110 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A snapshot of the validations of a run: how the links were served, from the cache or by a validator, and the
+ * time spent by each validator.
+ *
+ * @since 1.3
+ */
+public final class ValidationStatistics
+{
+    private final long cacheHits;
+
+    private final long cacheMisses;
+
+    private final long excludedLinks;
+
+    private final long evictions;
+
+    private final Map<String, ValidatorMetrics> validatorMetrics;
+
+    ValidationStatistics( long cacheHits, long cacheMisses, long excludedLinks, long evictions,
+                          Map<String, ValidatorMetrics> validatorMetrics )
+    {
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.excludedLinks = excludedLinks;
+        this.evictions = evictions;
+        this.validatorMetrics = Collections.unmodifiableMap( validatorMetrics );
+    }
+
+    /**
+     * @return the number of links served from the cache. The first link served with the result of a link
+     * validated up front is not counted, as the validation counts as its cache miss.
+     */
+    public long getCacheHits()
+    {
+        return cacheHits;
+    }
+
+    /**
+     * @return the number of links which were not cached, and were validated.
+     */
+    public long getCacheMisses()
+    {
+        return cacheMisses;
+    }
+
+    /**
+     * @return the number of links which were not cached, and were excluded from the validation.
+     */
+    public long getExcludedLinks()
+    {
+        return excludedLinks;
+    }
+
+    /**
+     * @return the number of results evicted from the memory, beyond the maximum number of results kept.
+     */
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * @return the percentage of the links served from the cache, 0 if none was checked.
+     */
+    public int getCacheHitRatio()
+    {
+        long links = cacheHits + cacheMisses + excludedLinks;
+
+        return ( links == 0 ) ? 0 : (int) ( cacheHits * 100 / links );
+    }
+
+    /**
+     * @return the metrics per validator name, in the order of the validators.
+     */
+    public Map<String, ValidatorMetrics> getValidatorMetrics()
+    {
+        return validatorMetrics;
+    }
+
+    @Override
+    public String toString()
+    {
+        return cacheHits + " cache hit(s), " + cacheMisses + " cache miss(es), " + excludedLinks
+            + " excluded link(s), " + getCacheHitRatio() + "% from the cache, " + evictions + " eviction(s)";
+    }
+}
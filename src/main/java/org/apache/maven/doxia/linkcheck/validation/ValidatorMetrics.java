@@ -0,0 +1,119 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * The validations done by a single validator during a run: their number, total and maximum time.
+ *
+ * @since 1.3
+ */
+public class ValidatorMetrics
+{
+    /** The name of the validator. */
+    private final String name;
+
+    private long validations;
+
+    private long totalTime;
+
+    private long maxTime;
+
+    /**
+     * @param name the name of the validator.
+     */
+    public ValidatorMetrics( String name )
+    {
+        this.name = name;
+    }
+
+    /**
+     * Records a validation.
+     *
+     * @param nanos the time in nanoseconds the validation took.
+     */
+    synchronized void recordValidation( long nanos )
+    {
+        validations++;
+        totalTime += nanos;
+        maxTime = Math.max( maxTime, nanos );
+    }
+
+    /**
+     * Adds the validations of other metrics to these ones.
+     *
+     * @param other the metrics to add.
+     */
+    synchronized void merge( ValidatorMetrics other )
+    {
+        synchronized ( other )
+        {
+            validations += other.validations;
+            totalTime += other.totalTime;
+            maxTime = Math.max( maxTime, other.maxTime );
+        }
+    }
+
+    /**
+     * @return the name of the validator.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of links validated, the cached results excluded.
+     */
+    public synchronized long getValidations()
+    {
+        return validations;
+    }
+
+    /**
+     * @return the total time in microseconds spent validating links.
+     */
+    public synchronized long getTotalTime()
+    {
+        return totalTime / 1000;
+    }
+
+    /**
+     * @return the mean time in microseconds of a validation, 0 if none.
+     */
+    public synchronized long getMeanTime()
+    {
+        return ( validations == 0 ) ? 0 : totalTime / validations / 1000;
+    }
+
+    /**
+     * @return the longest time in microseconds of a validation.
+     */
+    public synchronized long getMaxTime()
+    {
+        return maxTime / 1000;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return name + ": " + validations + " validation(s) in " + totalTime / 1000000 + " ms, mean "
+            + getMeanTime() + " us, max " + maxTime / 1000000 + " ms";
+    }
+}
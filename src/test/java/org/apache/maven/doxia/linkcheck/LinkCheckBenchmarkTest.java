@@ -0,0 +1,171 @@
+package org.apache.maven.doxia.linkcheck;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFile;
+import org.apache.maven.doxia.linkcheck.model.LinkcheckModel;
+import org.apache.maven.doxia.linkcheck.validation.HostMetrics;
+import org.apache.maven.doxia.linkcheck.validation.StubHttpServer;
+import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Drives an online link check of a synthetic site against embedded HTTP servers, and logs the
+ * throughput and the request latency. The benchmark only runs with the system property
+ * <code>linkcheck.benchmark</code> set to <code>true</code>, i.e.
+ * <code>mvn test -Dtest=LinkCheckBenchmarkTest -Dlinkcheck.benchmark=true</code>, not to slow down the normal
+ * build. The size of the site can be tuned with the system properties
+ * <code>linkcheck.benchmark.pages</code>, <code>linkcheck.benchmark.links</code>,
+ * <code>linkcheck.benchmark.hosts</code> and <code>linkcheck.benchmark.latency</code> (in milliseconds).
+ */
+public class LinkCheckBenchmarkTest
+    extends PlexusTestCase
+{
+    private static final Log LOG = LogFactory.getLog( LinkCheckBenchmarkTest.class );
+
+    public void testOnlineThroughput()
+        throws Exception
+    {
+        if ( !Boolean.getBoolean( "linkcheck.benchmark" ) )
+        {
+            return;
+        }
+
+        int pages = Integer.getInteger( "linkcheck.benchmark.pages", 50 );
+        int links = Integer.getInteger( "linkcheck.benchmark.links", 20 );
+        int hosts = Integer.getInteger( "linkcheck.benchmark.hosts", 4 );
+        int latency = Integer.getInteger( "linkcheck.benchmark.latency", 2 );
+
+        StubHttpServer[] servers = new StubHttpServer[hosts];
+        try
+        {
+            for ( int i = 0; i < hosts; i++ )
+            {
+                servers[i] = new StubHttpServer();
+                servers[i].setLatency( latency );
+            }
+
+            File site = new File( getBasedir(), "target/linkcheck-benchmark/site" );
+            FileUtils.deleteDirectory( site );
+            site.mkdirs();
+            int unsuccessful = generateSite( site, servers, pages, links );
+
+            HttpBean http = new HttpBean();
+            http.setConcurrentHosts( hosts );
+
+            LinkCheck lc = (LinkCheck) lookup( LinkCheck.ROLE );
+            lc.setOnline( true );
+            lc.setHostBatching( true );
+            lc.setHttp( http );
+            lc.setBasedir( site );
+            lc.setReportOutput( new File( getBasedir(), "target/linkcheck-benchmark/linkcheck.xml" ) );
+            lc.setReportOutputEncoding( "UTF-8" );
+
+            long start = System.nanoTime();
+            LinkcheckModel model = lc.execute();
+            double seconds = ( System.nanoTime() - start ) / 1000000000.0;
+
+            assertEquals( pages, model.getFiles().size() );
+            int checked = 0;
+            int failed = 0;
+            for ( LinkcheckFile file : model.getFiles() )
+            {
+                checked += file.getNumberOfLinks();
+                failed += file.getUnsuccessful();
+            }
+            assertEquals( pages * links, checked );
+            assertEquals( unsuccessful, failed );
+
+            long p99 = 0;
+            long requests = 0;
+            for ( HostMetrics metrics : model.getHostMetrics().values() )
+            {
+                p99 = Math.max( p99, metrics.getLatencyPercentile( 99 ) );
+                requests += metrics.getRequests();
+            }
+            assertTrue( new File( getBasedir(), "target/linkcheck-benchmark/linkcheck-metrics.xml" ).exists() );
+
+            LOG.info( String.format( "Online link check: %d links (%d requests) in %.2f s, %.0f links/s, "
+                + "p99 latency %d ms", checked, requests, seconds, checked / seconds, p99 ) );
+        }
+        finally
+        {
+            for ( StubHttpServer server : servers )
+            {
+                if ( server != null )
+                {
+                    server.stop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the pages of the site. Each page links to distinct and shared resources of the servers, with a
+     * broken link every 10 links and a redirected one every 7 links.
+     *
+     * @return the number of links reported as unsuccessful, i.e. broken or redirected.
+     */
+    private static int generateSite( File site, StubHttpServer[] servers, int pages, int links )
+        throws IOException
+    {
+        int unsuccessful = 0;
+        for ( int p = 0; p < pages; p++ )
+        {
+            StringBuilder sb = new StringBuilder( "<html><body>\n" );
+            for ( int l = 0; l < links; l++ )
+            {
+                StubHttpServer server = servers[( p + l ) % servers.length];
+                String path;
+                if ( l % 10 == 9 )
+                {
+                    path = "/status/404/page" + p + "-" + l + ".html";
+                    unsuccessful++;
+                }
+                else if ( l % 7 == 6 )
+                {
+                    path = "/redirect/1/shared" + l + ".html";
+                    unsuccessful++;
+                }
+                else
+                {
+                    // half of the links are shared by all the pages
+                    path = "/ok/" + ( ( l % 2 == 0 ) ? "shared" + l : "page" + p + "-" + l ) + ".html";
+                }
+                sb.append( "<a href=\"" ).append( server.url( path ) ).append( "\">link</a>\n" );
+            }
+            sb.append( "</body></html>\n" );
+
+            try ( Writer w = WriterFactory.newXmlWriter( new File( site, "page" + p + ".html" ) ) )
+            {
+                w.write( sb.toString() );
+            }
+        }
+
+        return unsuccessful;
+    }
+}
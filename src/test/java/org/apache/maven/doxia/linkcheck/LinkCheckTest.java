@@ -20,12 +20,17 @@ package org.apache.maven.doxia.linkcheck;
  */
 
 import java.io.File;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.maven.doxia.linkcheck.model.LinkcheckFile;
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
 import org.apache.maven.doxia.linkcheck.model.LinkcheckModel;
+import org.apache.maven.doxia.linkcheck.validation.StubHttpServer;
 import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.WriterFactory;
 
 /**
  * @author Ben Walding
@@ -95,6 +100,75 @@ public class LinkCheckTest
         //assertEquals( "Non-existent links", 0, ftc.getSuccessful() );
     }
 
+    public void testErrorBudget()
+        throws Exception
+    {
+        File site = new File( getBasedir(), "target/linkcheck/errorBudget/site" );
+        FileUtils.deleteDirectory( site );
+        site.mkdirs();
+        for ( int i = 0; i < 10; i++ )
+        {
+            try ( Writer w = WriterFactory.newXmlWriter( new File( site, "page" + i + ".html" ) ) )
+            {
+                w.write( "<html><body><a href=\"page0.html\">ok</a><a href=\"missing" + i
+                    + ".html\">broken</a></body></html>" );
+            }
+        }
+
+        LinkCheck lc = (LinkCheck) lookup( LinkCheck.ROLE );
+        lc.setBasedir( site );
+        lc.setReportOutput( new File( getBasedir(), "target/linkcheck/errorBudget/linkcheck.xml" ) );
+        lc.setErrorBudget( 2 );
+
+        LinkcheckModel result = lc.execute();
+
+        // stopped at the third broken link
+        assertEquals( 3, result.getFiles().size() );
+        assertEquals( "more than 2 broken link(s) found", result.getAbortReason() );
+
+        lc.setErrorBudget( -1 );
+        result = lc.execute();
+
+        assertEquals( 10, result.getFiles().size() );
+        assertNull( result.getAbortReason() );
+    }
+
+    public void testOnlineTimeBudget()
+        throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            File site = new File( getBasedir(), "target/linkcheck/timeBudget/site" );
+            FileUtils.deleteDirectory( site );
+            site.mkdirs();
+            try ( Writer w = WriterFactory.newXmlWriter( new File( site, "index.html" ) ) )
+            {
+                w.write( "<html><body><a href=\"" + server.url( "/slow/3000/index.html" )
+                    + "\">slow</a></body></html>" );
+            }
+
+            LinkCheck lc = (LinkCheck) lookup( LinkCheck.ROLE );
+            lc.setOnline( true );
+            lc.setBasedir( site );
+            lc.setReportOutput( new File( getBasedir(), "target/linkcheck/timeBudget/linkcheck.xml" ) );
+            lc.setOnlineTimeBudget( 200 );
+
+            LinkcheckModel result = lc.execute();
+
+            // reported apart from the unknown results, and not as an abort
+            LinkcheckFile file = result.getFiles().get( 0 );
+            assertEquals( 1, file.getNumberOfLinks( LinkcheckFileResult.NOT_CHECKED_LEVEL ) );
+            assertEquals( 0, file.getNumberOfLinks( LinkcheckFileResult.UNKNOWN_LEVEL ) );
+            assertEquals( LinkcheckFileResult.NOT_CHECKED, file.getResults().get( 0 ).getStatus() );
+            assertNull( result.getAbortReason() );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
     private void check( Map<String, LinkcheckFile> map, String name, int linkCount )
     {
         LinkcheckFile ftc = map.get( name );
@@ -0,0 +1,183 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the binary cache file.
+ */
+public class CacheFileTest
+    extends TestCase
+{
+    private File file;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        file = File.createTempFile( "linkcheck", ".cache" );
+        file.deleteOnExit();
+        new File( file.getPath() + ".lock" ).deleteOnExit();
+    }
+
+    public void testRoundTrip()
+        throws Exception
+    {
+        HTTPLinkValidationResult http =
+            new HTTPLinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, true, 301, "Moved é", "\"etag\"",
+                                          "Mon, 01 Jan 2024 00:00:00 GMT", "http://example.org/new" );
+        LinkValidationResult plain = new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, null );
+
+        CacheFile cf = new CacheFile( file );
+        assertFalse( cf.load( new HashMap<Object, LinkValidationResult>(),
+                              new HashMap<String, HTTPLinkValidationResult>() ) );
+        cf.appendResult( "http://example.org/old", http );
+        cf.appendResult( "mailto:me@example.org", plain );
+        cf.appendRedirect( "http://example.org/a", http );
+        cf.close();
+
+        Map<Object, LinkValidationResult> results = new HashMap<>();
+        Map<String, HTTPLinkValidationResult> redirects = new HashMap<>();
+        cf = new CacheFile( file );
+        assertTrue( cf.load( results, redirects ) );
+        assertEquals( 3, cf.getRecordCount() );
+
+        HTTPLinkValidationResult read = (HTTPLinkValidationResult) results.get( "http://example.org/old" );
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, read.getStatus() );
+        assertTrue( read.isPersistent() );
+        assertEquals( http.getErrorMessage(), read.getErrorMessage() );
+        assertEquals( http.getTimestamp(), read.getTimestamp() );
+        assertEquals( "\"etag\"", read.getEtag() );
+        assertEquals( "Mon, 01 Jan 2024 00:00:00 GMT", read.getLastModified() );
+        assertEquals( "http://example.org/new", read.getLocation() );
+
+        assertNull( results.get( "mailto:me@example.org" ).getErrorMessage() );
+        assertFalse( results.get( "mailto:me@example.org" ) instanceof HTTPLinkValidationResult );
+        assertEquals( 301, redirects.get( "http://example.org/a" ).getHttpStatusCode() );
+    }
+
+    public void testLaterRecordsWin()
+        throws Exception
+    {
+        CacheFile cf = new CacheFile( file );
+        cf.appendResult( "a", new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, "first" ) );
+        cf.appendResult( "b", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "" ) );
+        cf.appendResult( "a", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "second" ) );
+        cf.appendRemovedResult( "b", System.currentTimeMillis() );
+        cf.close();
+
+        Map<Object, LinkValidationResult> results = new HashMap<>();
+        cf = new CacheFile( file );
+        cf.load( results, new HashMap<String, HTTPLinkValidationResult>() );
+        assertEquals( 1, results.size() );
+        assertEquals( "second", results.get( "a" ).getErrorMessage() );
+
+        // compacted
+        Map<String, LinkValidationResult> live = new HashMap<>();
+        live.put( "a", results.get( "a" ) );
+        cf.merge( live, new HashMap<String, HTTPLinkValidationResult>() );
+        cf.close();
+        cf = new CacheFile( file );
+        cf.load( new HashMap<Object, LinkValidationResult>(), new HashMap<String, HTTPLinkValidationResult>() );
+        // the removal of b is kept for the older results of other processes
+        assertEquals( 2, cf.getRecordCount() );
+    }
+
+    public void testOlderRemovalKeepsNewerResult()
+        throws Exception
+    {
+        // two builds sharing the cache file
+        CacheFile first = new CacheFile( file );
+        first.load( new HashMap<Object, LinkValidationResult>(), new HashMap<String, HTTPLinkValidationResult>() );
+        CacheFile second = new CacheFile( file );
+        second.load( new HashMap<Object, LinkValidationResult>(), new HashMap<String, HTTPLinkValidationResult>() );
+
+        LinkValidationResult newer = new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "newer", 2000 );
+        second.appendResult( "a", newer );
+        second.appendResult( "b", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "b", 500 ) );
+        Map<String, LinkValidationResult> secondResults = new HashMap<>();
+        secondResults.put( "a", newer );
+        second.merge( secondResults, new HashMap<String, HTTPLinkValidationResult>() );
+        second.close();
+
+        // the first build removed a and b before the second one merged its results, and merges later
+        first.appendRemovedResult( "a", 1000 );
+        first.appendRemovedResult( "b", 1000 );
+        first.merge( new HashMap<String, LinkValidationResult>(), new HashMap<String, HTTPLinkValidationResult>() );
+        first.close();
+
+        Map<Object, LinkValidationResult> results = new HashMap<>();
+        CacheFile cf = new CacheFile( file );
+        cf.load( results, new HashMap<String, HTTPLinkValidationResult>() );
+        assertEquals( 1, results.size() );
+        assertEquals( "newer", results.get( "a" ).getErrorMessage() );
+
+        // an older result merged after the removal does not come back
+        cf.merge( Collections.singletonMap( "b", new LinkValidationResult(
+            LinkcheckFileResult.VALID_LEVEL, true, "b", 800 ) ), new HashMap<String, HTTPLinkValidationResult>() );
+        cf.close();
+        results.clear();
+        cf = new CacheFile( file );
+        cf.load( results, new HashMap<String, HTTPLinkValidationResult>() );
+        assertNull( results.get( "b" ) );
+        assertEquals( "newer", results.get( "a" ).getErrorMessage() );
+    }
+
+    public void testIncompleteRecordIgnored()
+        throws Exception
+    {
+        CacheFile cf = new CacheFile( file );
+        cf.appendResult( "a", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "a" ) );
+        cf.appendResult( "b", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "b" ) );
+        cf.close();
+
+        // an interrupted run
+        try ( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+        {
+            raf.setLength( raf.length() - 3 );
+        }
+
+        Map<Object, LinkValidationResult> results = new HashMap<>();
+        cf = new CacheFile( file );
+        assertTrue( cf.load( results, new HashMap<String, HTTPLinkValidationResult>() ) );
+        assertEquals( 1, results.size() );
+
+        // the next appends overwrite the incomplete record
+        cf.appendResult( "c", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "c" ) );
+        cf.close();
+
+        results.clear();
+        cf = new CacheFile( file );
+        cf.load( results, new HashMap<String, HTTPLinkValidationResult>() );
+        assertEquals( 2, results.size() );
+        assertEquals( "c", results.get( "c" ).getErrorMessage() );
+    }
+}
@@ -0,0 +1,163 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Tests the compiled excluded links against {@link LinkValidatorManager#matchPattern(String, String)}, and compares
+ * their cost with few and many patterns. The benchmark only runs with the system property
+ * <code>linkcheck.benchmark</code> set to <code>true</code>, not to slow down the normal build, and its number of
+ * patterns can be tuned with the system property <code>linkcheck.benchmark.patterns</code>.
+ */
+public class ExcludedLinksMatcherTest
+    extends TestCase
+{
+    private static final Log LOG = LogFactory.getLog( ExcludedLinksMatcherTest.class );
+
+    private static final String[] PATTERNS = {
+        "http://maven.apache.org/", "http://java.sun.com", "/", "", "mailto:", "../../exclude/*",
+        "http://maven.apache.org/*", "http://maven.apache.org/**/*.jsp", "http://www.example.org/*.html",
+        "**/*.pdf", "*/private/*", "https://example.com/a?c/*", "%regex[.*\\.zip]", "http://host/dir/*"
+    };
+
+    private static final String[] LINKS = {
+        "", "http://maven.apache.org", "http://maven.apache.org/", "http://maven.apache.org/test/test.html",
+        "http://maven.apache.org/test/index.jsp", "http://java.sun.com/", "http://www.example.org/a.html",
+        "http://www.example.org/a/b.html", "http://www.example.org/a.htm", "doc/manual.pdf", "/doc/manual.pdf",
+        "docs/private/x.html", "https://example.com/abc/d", "https://example.com/ac/d", "http://host/dir",
+        "http://host/dir/", "http://host/directory", "http://other/archive.zip", "mailto:dev@maven.apache.org",
+        "relative.html", "#anchor"
+    };
+
+    public void testSameAsMatchPattern()
+    {
+        // every pattern alone, then all of them but the ones matching everything
+        for ( String pattern : PATTERNS )
+        {
+            assertSameAsMatchPattern( new String[] { pattern } );
+        }
+
+        String[] patterns = new String[PATTERNS.length - 2];
+        int n = 0;
+        for ( String pattern : PATTERNS )
+        {
+            if ( !"/".equals( pattern ) && !"".equals( pattern ) )
+            {
+                patterns[n++] = pattern;
+            }
+        }
+        assertSameAsMatchPattern( patterns );
+
+        assertFalse( new ExcludedLinksMatcher( null ).matches( "http://maven.apache.org/" ) );
+        assertFalse( new ExcludedLinksMatcher( new String[] { null } ).matches( "" ) );
+    }
+
+    public void testBenchmark()
+    {
+        if ( !Boolean.getBoolean( "linkcheck.benchmark" ) )
+        {
+            return;
+        }
+
+        int count = Integer.getInteger( "linkcheck.benchmark.patterns", 200 );
+        String[] few = generatePatterns( 10 );
+        String[] many = generatePatterns( count );
+
+        String[] links = new String[1000];
+        for ( int i = 0; i < links.length; i++ )
+        {
+            links[i] = "http://host" + ( i % 50 ) + ".example.org/path/" + i + "/page.html";
+        }
+
+        long linear = timeLinear( many, links );
+        long compiledFew = timeCompiled( few, links );
+        long compiledMany = timeCompiled( many, links );
+
+        LOG.info( String.format( "Excluded links: %d patterns, linear %.0f ns/link, compiled %.0f ns/link "
+            + "(%.0f ns/link with 10 patterns)", count, linear / (double) links.length,
+                                 compiledMany / (double) links.length, compiledFew / (double) links.length ) );
+    }
+
+    private static void assertSameAsMatchPattern( String[] patterns )
+    {
+        ExcludedLinksMatcher matcher = new ExcludedLinksMatcher( patterns );
+        for ( String link : LINKS )
+        {
+            boolean expected = false;
+            for ( String pattern : patterns )
+            {
+                expected |= LinkValidatorManager.matchPattern( link, pattern );
+            }
+
+            assertEquals( "'" + link + "' with " + Arrays.toString( patterns ), expected,
+                          matcher.matches( link ) );
+        }
+    }
+
+    /**
+     * @return plain and wildcard patterns, none of them matching the benchmark links.
+     */
+    private static String[] generatePatterns( int count )
+    {
+        String[] patterns = new String[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            patterns[i] = ( i % 2 == 0 ) ? "http://excluded" + i + ".example.org/"
+                            : "http://host" + i + ".example.org/private" + i + "/**/*.html";
+        }
+
+        return patterns;
+    }
+
+    private static long timeLinear( String[] patterns, String[] links )
+    {
+        long start = System.nanoTime();
+        for ( String link : links )
+        {
+            for ( String pattern : patterns )
+            {
+                if ( LinkValidatorManager.matchPattern( link, pattern ) )
+                {
+                    fail( link );
+                }
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long timeCompiled( String[] patterns, String[] links )
+    {
+        ExcludedLinksMatcher matcher = new ExcludedLinksMatcher( patterns );
+        long start = System.nanoTime();
+        for ( String link : links )
+        {
+            assertFalse( link, matcher.matches( link ) );
+        }
+
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,115 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.WriterFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the validation of the local links, and of the site links against the local site.
+ */
+public class FileLinkValidatorTest
+    extends TestCase
+{
+    private static final String BASE_URL = "http://www.example.org/site/";
+
+    private File site;
+
+    private File page;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        site = new File( System.getProperty( "basedir", "." ), "target/file-link-validator/site" );
+        FileUtils.deleteDirectory( site );
+        new File( site, "guide" ).mkdirs();
+        write( new File( site, "index.html" ), "<html><body><a name=\"top\">top</a></body></html>" );
+        write( new File( site, "guide/index.html" ), "<html><body><h2 id=\"usage\">Usage</h2></body></html>" );
+        page = new File( site, "guide/page.html" );
+        write( page, "<html><body><a href=\"/index.html\">home</a></body></html>" );
+    }
+
+    public void testRelativeLinks()
+    {
+        FileLinkValidator validator = new FileLinkValidator( "UTF-8" );
+
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, validate( validator, "../index.html#top" ).getStatus() );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, validate( validator, "missing.html" ).getStatus() );
+
+        // the anchors are part of the key, the query is not
+        String index = new File( page.getParentFile(), "../index.html" ).getAbsolutePath();
+        assertEquals( index + "#top", validator.getResourceKey( new LinkValidationItem( page, "../index.html#top" ) ) );
+        assertEquals( index, validator.getResourceKey( new LinkValidationItem( page, "../index.html?q=1" ) ) );
+        assertEquals( page.getAbsolutePath() + "#x", validator.getResourceKey( new LinkValidationItem( page, "#x" ) ) );
+
+        // the site links are left to the HTTP validators
+        assertNull( validator.getResourceKey( new LinkValidationItem( page, "/index.html" ) ) );
+        assertNull( validator.getResourceKey( new LinkValidationItem( page, BASE_URL + "index.html" ) ) );
+    }
+
+    public void testSiteLinks()
+    {
+        FileLinkValidator validator = new FileLinkValidator( "UTF-8", site, BASE_URL );
+
+        assertEquals( new File( site, "index.html" ).getAbsolutePath(),
+                      validator.getResourceKey( new LinkValidationItem( page, "/index.html" ) ) );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, validate( validator, "/index.html#top" ).getStatus() );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, validate( validator, "/guide/#usage" ).getStatus() );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, validate( validator, "/guide/#top" ).getStatus() );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, validate( validator, "/missing.html" ).getStatus() );
+
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, validate( validator, BASE_URL ).getStatus() );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL,
+                      validate( validator, "HTTP://www.example.org/site/guide/index.html?q=1" ).getStatus() );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL,
+                      validate( validator, "http://www.example.org/site#top" ).getStatus() );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL,
+                      validate( validator, BASE_URL + "guide/page.html#nowhere" ).getStatus() );
+
+        // other sites are left to the HTTP validators
+        assertNull( validator.getResourceKey( new LinkValidationItem( page, "http://www.example.org/other/" ) ) );
+        assertNull( validator.getResourceKey( new LinkValidationItem( page, "http://www.example.org/site2/" ) ) );
+        assertNull( validator.getResourceKey( new LinkValidationItem( page, "//cdn.example.org/lib.js" ) ) );
+    }
+
+    private LinkValidationResult validate( FileLinkValidator validator, String link )
+    {
+        return validator.validateLink( new LinkValidationItem( page, link ) );
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        try ( Writer w = WriterFactory.newXmlWriter( file ) )
+        {
+            w.write( content );
+        }
+    }
+}
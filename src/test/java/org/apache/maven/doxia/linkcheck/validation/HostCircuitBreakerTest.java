@@ -0,0 +1,96 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the per-host circuit breaker.
+ */
+public class HostCircuitBreakerTest
+    extends TestCase
+{
+    public void testOpensAfterConsecutiveFailures()
+    {
+        HostCircuitBreaker breaker = new HostCircuitBreaker( 3, 60000 );
+
+        assertFalse( breaker.recordFailure( "dead.example.org" ) );
+        assertFalse( breaker.recordFailure( "dead.example.org" ) );
+        assertTrue( breaker.allowRequest( "dead.example.org" ) );
+        assertTrue( breaker.recordFailure( "DEAD.example.org" ) );
+
+        assertFalse( breaker.allowRequest( "dead.example.org" ) );
+        assertTrue( breaker.isOpen( "dead.example.org" ) );
+        assertTrue( breaker.allowRequest( "alive.example.org" ) );
+    }
+
+    public void testSuccessResetsFailures()
+    {
+        HostCircuitBreaker breaker = new HostCircuitBreaker( 2, 60000 );
+
+        breaker.recordFailure( "flaky.example.org" );
+        breaker.recordSuccess( "flaky.example.org" );
+        assertFalse( breaker.recordFailure( "flaky.example.org" ) );
+        assertTrue( breaker.allowRequest( "flaky.example.org" ) );
+    }
+
+    public void testProbeAfterCooldown()
+    {
+        HostCircuitBreaker breaker = new HostCircuitBreaker( 1, 0 );
+
+        assertTrue( breaker.recordFailure( "down.example.org" ) );
+
+        // the cooldown has elapsed: exactly one probe is let through
+        assertTrue( breaker.allowRequest( "down.example.org" ) );
+        assertFalse( breaker.allowRequest( "down.example.org" ) );
+
+        // a failed probe re-opens the circuit, a successful one closes it
+        assertTrue( breaker.recordFailure( "down.example.org" ) );
+        assertTrue( breaker.allowRequest( "down.example.org" ) );
+        breaker.recordSuccess( "down.example.org" );
+        assertFalse( breaker.isOpen( "down.example.org" ) );
+    }
+
+    public void testReleasedProbe()
+    {
+        HostCircuitBreaker breaker = new HostCircuitBreaker( 1, 0 );
+
+        assertTrue( breaker.recordFailure( "down.example.org" ) );
+        assertTrue( breaker.allowRequest( "down.example.org" ) );
+        assertFalse( breaker.allowRequest( "down.example.org" ) );
+
+        // the probe ended before any request, for instance out of the rate limit: the next one may probe
+        breaker.releaseProbe( "down.example.org" );
+        assertTrue( breaker.isOpen( "down.example.org" ) );
+        assertTrue( breaker.allowRequest( "down.example.org" ) );
+        assertFalse( breaker.allowRequest( "down.example.org" ) );
+    }
+
+    public void testDisabled()
+    {
+        HostCircuitBreaker breaker = new HostCircuitBreaker( 0, 60000 );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertFalse( breaker.recordFailure( "dead.example.org" ) );
+        }
+        assertTrue( breaker.allowRequest( "dead.example.org" ) );
+    }
+}
@@ -19,8 +19,22 @@ package org.apache.maven.doxia.linkcheck.validation;
  * under the License.
  */
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
 import junit.framework.TestCase;
 
+import org.apache.maven.doxia.linkcheck.HttpBean;
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+
 /**
  * @author <a href="mailto:vincent.siveton@gmail.com">Vincent Siveton</a>
  */
@@ -67,4 +81,515 @@ public class LinkValidatorManagerTest
         pattern = "../../exclude/*";
         assertFalse( LinkValidatorManager.matchPattern( link, pattern ) );
     }
+
+    public void testDispatchByKind()
+    {
+        LinkValidatorManager lvm = new LinkValidatorManager();
+        // a validator of its own, which may claim any link, before the ones claiming links by their kind
+        lvm.addLinkValidator( new LinkValidator()
+        {
+            @Override
+            public LinkValidationResult validateLink( LinkValidationItem lvi )
+            {
+                return new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false, "custom" );
+            }
+
+            @Override
+            public Object getResourceKey( LinkValidationItem lvi )
+            {
+                return lvi.getLink().startsWith( "custom:" ) ? lvi.getLink() : null;
+            }
+        } );
+        lvm.addLinkValidator( new FileLinkValidator( null ) );
+        lvm.addLinkValidator( new OfflineHTTPLinkValidator() );
+        lvm.addLinkValidator( new MailtoLinkValidator() );
+
+        assertEquals( "doesn't exist.", validate( lvm, "missing.html" ).getErrorMessage() );
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, validate( lvm, "http://example.org/" ).getStatus() );
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, validate( lvm, "/index.html" ).getStatus() );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, validate( lvm, "mailto:dev@maven.apache.org" ).getStatus() );
+        // claimed by the HTTP validator first
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, validate( lvm, "http://user@example.org/" ).getStatus() );
+        assertEquals( "custom", validate( lvm, "custom:link" ).getErrorMessage() );
+    }
+
+    private static LinkValidationResult validate( LinkValidatorManager lvm, String link )
+    {
+        return lvm.validateLink( new LinkValidationItem( new File( "index.html" ), link ) );
+    }
+
+    public void testFailuresPersistedWithTtl() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        new File( cacheFile.getPath() + ".lock" ).deleteOnExit();
+
+        LinkValidationItem dead = new LinkValidationItem( new File( "index.html" ), "http://dead.example.org/" );
+        LinkValidationItem gone = new LinkValidationItem( new File( "index.html" ), "http://example.org/gone" );
+
+        // by default, i.e. without a failure time to live, errors are only remembered for the current run
+        LinkValidatorManager lvm = newManager();
+        lvm.setCachedResult( "http://dead.example.org/",
+                             new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, "unknown host" ) );
+        lvm.setCachedResult( "http://example.org/gone",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, 404, "Not Found" ) );
+        lvm.setCachedResult( "http://example.org/moved",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, true, 301, "Moved" ) );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, lvm.validateLink( dead ).getStatus() );
+        lvm.saveCache( cacheFile );
+
+        // and not even stored, unlike the warnings
+        Map<Object, LinkValidationResult> stored = new HashMap<>();
+        new CacheFile( cacheFile ).load( stored, new HashMap<String, HTTPLinkValidationResult>() );
+        assertEquals( Collections.singleton( "http://example.org/moved" ), stored.keySet() );
+
+        lvm = newManager();
+        lvm.loadCache( cacheFile );
+        assertNull( lvm.getCachedResult( dead ) );
+
+        lvm.setFailureTtl( 60000 );
+        lvm.setCachedResult( "http://dead.example.org/",
+                             new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, "unknown host" ) );
+        lvm.setCachedResult( "http://example.org/gone",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, 404, "Not Found" ) );
+        lvm.saveCache( cacheFile );
+
+        lvm = newManager();
+        lvm.setFailureTtl( 60000 );
+        lvm.loadCache( cacheFile );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, lvm.validateLink( dead ).getStatus() );
+        assertEquals( 404, ( (HTTPLinkValidationResult) lvm.getCachedResult( gone ) ).getHttpStatusCode() );
+    }
+
+    public void testCacheAppendedAndMigrated() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        new File( cacheFile.getPath() + ".lock" ).deleteOnExit();
+
+        // a cache written by Java serialization
+        Map<Object, LinkValidationResult> legacy = new HashMap<>();
+        legacy.put( "http://example.org/",
+                    new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK" ) );
+        try ( ObjectOutputStream os = new ObjectOutputStream( new FileOutputStream( cacheFile ) ) )
+        {
+            os.writeObject( legacy );
+        }
+
+        LinkValidatorManager lvm = newManager();
+        lvm.loadCache( cacheFile );
+        assertNotNull( lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ), "http://example.org/" ) ) );
+        lvm.saveCache( cacheFile );
+        assertFalse( CacheFile.isSerialized( cacheFile ) );
+
+        // the results are appended as they are produced
+        lvm = newManager();
+        lvm.loadCache( cacheFile );
+        long length = cacheFile.length();
+        lvm.setCachedResult( "http://example.org/new",
+                             new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "" ) );
+        lvm.setCachedResult( "http://example.org/",
+                             new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false, "" ) );
+        lvm.saveCache( cacheFile );
+        assertTrue( cacheFile.length() > length );
+
+        lvm = newManager();
+        lvm.loadCache( cacheFile );
+        assertNotNull( lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ),
+                                                                    "http://example.org/new" ) ) );
+        assertNull( lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ), "http://example.org/" ) ) );
+        lvm.saveCache( cacheFile );
+    }
+
+    public void testSharedCacheFile() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        new File( cacheFile.getPath() + ".lock" ).deleteOnExit();
+        long now = System.currentTimeMillis();
+
+        // two builds running at the same time
+        LinkValidatorManager first = newManager();
+        first.loadCache( cacheFile );
+        LinkValidatorManager second = newManager();
+        second.loadCache( cacheFile );
+
+        first.setCachedResult( "http://example.org/first",
+                               new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "", now ) );
+        first.setCachedResult( "http://example.org/both",
+                               new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "newer", now ) );
+        second.setCachedResult( "http://example.org/second",
+                                new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "", now ) );
+        second.setCachedResult( "http://example.org/both",
+                                new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "older", now - 1 ) );
+        first.saveCache( cacheFile );
+        second.saveCache( cacheFile );
+
+        // a third one saving to it without having loaded it
+        LinkValidatorManager third = newManager();
+        third.setCachedResult( "http://example.org/third",
+                               new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "", now ) );
+        third.saveCache( cacheFile );
+
+        LinkValidatorManager lvm = newManager();
+        lvm.loadCache( cacheFile );
+        for ( String name : new String[] { "first", "second", "third" } )
+        {
+            assertNotNull( name, lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ),
+                                                                              "http://example.org/" + name ) ) );
+        }
+        assertEquals( "newer", lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ),
+                                                                            "http://example.org/both" ) )
+            .getErrorMessage() );
+        lvm.saveCache( cacheFile );
+    }
+
+    public void testOffHeapCache() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        File index = new File( cacheFile.getPath() + ".index" );
+        for ( String suffix : new String[] { ".lock", ".index", ".redirects.index" } )
+        {
+            new File( cacheFile.getPath() + suffix ).deleteOnExit();
+        }
+        LinkValidationItem valid = new LinkValidationItem( new File( "index.html" ), "http://example.org/" );
+        LinkValidationItem dead = new LinkValidationItem( new File( "index.html" ), "http://dead.example.org/" );
+        LinkValidationItem unknown = new LinkValidationItem( new File( "index.html" ), "http://example.org/unknown" );
+
+        LinkValidatorManager lvm = newManager();
+        lvm.setOffHeapCache( true );
+        lvm.loadCache( cacheFile );
+        lvm.setCachedResult( "http://example.org/",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK" ) );
+        lvm.setCachedResult( "http://dead.example.org/",
+                             new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, "unknown host" ) );
+        lvm.setCachedResult( "http://example.org/unknown",
+                             new LinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, false, "" ) );
+        assertNotNull( lvm.getCachedResult( dead ) );
+        lvm.saveCache( cacheFile );
+        assertTrue( index.exists() );
+
+        // the index reflects the cache file, and is used as it is
+        long length = cacheFile.length();
+        lvm = newManager();
+        lvm.setOffHeapCache( true );
+        lvm.loadCache( cacheFile );
+        assertEquals( 200, ( (HTTPLinkValidationResult) lvm.getCachedResult( valid ) ).getHttpStatusCode() );
+        assertNull( lvm.getCachedResult( dead ) );
+        assertNull( lvm.getCachedResult( unknown ) );
+
+        // while it is used, another build reads the cache file in memory
+        LinkValidatorManager other = newManager();
+        other.setOffHeapCache( true );
+        other.loadCache( cacheFile );
+        assertNotNull( other.getCachedResult( valid ) );
+        other.setCachedResult( "http://example.org/other",
+                               new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "" ) );
+        other.saveCache( cacheFile );
+        lvm.saveCache( cacheFile );
+        assertTrue( cacheFile.length() > length );
+
+        // the index is then rebuilt from the cache file
+        lvm = newManager();
+        lvm.setOffHeapCache( true );
+        lvm.loadCache( cacheFile );
+        assertNotNull( lvm.getCachedResult( new LinkValidationItem( new File( "index.html" ),
+                                                                    "http://example.org/other" ) ) );
+        assertNotNull( lvm.getCachedResult( valid ) );
+        lvm.saveCache( cacheFile );
+    }
+
+    public void testOffHeapCacheRevalidated() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        for ( String suffix : new String[] { ".lock", ".index", ".redirects.index" } )
+        {
+            new File( cacheFile.getPath() + suffix ).deleteOnExit();
+        }
+
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            LinkValidationItem lvi = new LinkValidationItem( new File( "index.html" ), server.url( "/ok/a.html" ) );
+
+            LinkValidatorManager lvm = newManager();
+            lvm.setOffHeapCache( true );
+            lvm.loadCache( cacheFile );
+            lvm.setCachedResult( server.url( "/ok/a.html" ),
+                                 new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK" ) );
+            lvm.saveCache( cacheFile );
+
+            // the loaded result is revalidated once
+            lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( new HttpBean() ) );
+            lvm.setOffHeapCache( true );
+            lvm.setRevalidateCache( true );
+            lvm.loadCache( cacheFile );
+            assertEquals( LinkcheckFileResult.VALID_LEVEL, lvm.validateLink( lvi ).getStatus() );
+            assertEquals( 1, server.getRequestCount() );
+            assertEquals( LinkcheckFileResult.VALID_LEVEL, lvm.validateLink( lvi ).getStatus() );
+            assertEquals( 1, server.getRequestCount() );
+            lvm.saveCache( cacheFile );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testValidateLinksRateLimited() throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            HttpBean http = new HttpBean();
+            Properties rates = new Properties();
+            rates.setProperty( "127.0.0.1", "20" );
+            http.setHostRequestsPerSecond( rates );
+
+            LinkValidatorManager lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( http ) );
+
+            List<LinkValidationItem> items = new ArrayList<>();
+            for ( int i = 0; i < 30; i++ )
+            {
+                items.add( new LinkValidationItem( new File( "index.html" ), server.url( "/ok/" + i + ".html" ) ) );
+            }
+
+            long start = System.currentTimeMillis();
+            lvm.validateLinks( items, 2 );
+
+            // 20 at once, then 10 more at 20 per second
+            assertTrue( System.currentTimeMillis() - start >= 450 );
+            assertEquals( 30, server.getRequestCount() );
+            for ( LinkValidationItem lvi : items )
+            {
+                assertEquals( LinkcheckFileResult.VALID_LEVEL, lvm.getCachedResult( lvi ).getStatus() );
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testValidateLinkRateLimited() throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            HttpBean http = new HttpBean();
+            http.setRequestsPerSecond( 5 );
+
+            LinkValidatorManager lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( http ) );
+
+            // the links beyond the burst are requested once the limit allows it, not reported as not checked
+            long start = System.currentTimeMillis();
+            for ( int i = 0; i < 7; i++ )
+            {
+                LinkValidationItem lvi = new LinkValidationItem( new File( "index.html" ),
+                                                                 server.url( "/ok/" + i + ".html" ) );
+                assertEquals( LinkcheckFileResult.VALID_LEVEL, lvm.validateLink( lvi ).getStatus() );
+            }
+
+            assertTrue( System.currentTimeMillis() - start >= 350 );
+            assertEquals( 7, server.getRequestCount() );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testBatchedResultsKeptForPages() throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            LinkValidatorManager lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( new HttpBean() ) );
+            lvm.setMaxRemoteResults( 1 );
+
+            // errors are not stored without a failure time to live, and only one fits in memory
+            List<LinkValidationItem> items = new ArrayList<>();
+            for ( int i = 0; i < 3; i++ )
+            {
+                items.add( new LinkValidationItem( new File( "page0.html" ), server.url( "/status/404/" + i ) ) );
+                items.add( new LinkValidationItem( new File( "page1.html" ), server.url( "/status/404/" + i ) ) );
+            }
+            lvm.validateLinks( items, 1 );
+            assertEquals( 3, server.getRequestCount() );
+
+            for ( LinkValidationItem lvi : items )
+            {
+                assertEquals( LinkcheckFileResult.ERROR_LEVEL, lvm.validateLink( lvi ).getStatus() );
+            }
+            assertEquals( 3, server.getRequestCount() );
+
+            // the validation of a link counts for its first item, once
+            assertEquals( 3, lvm.getValidationStatistics().getCacheMisses() );
+            assertEquals( 3, lvm.getValidationStatistics().getCacheHits() );
+
+            // the pages are served: the results are not kept anymore
+            lvm.validateLink( items.get( 0 ) );
+            assertEquals( 4, server.getRequestCount() );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testValidateLinksPopularityOrder() throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            LinkValidatorManager lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( new HttpBean() ) );
+            lvm.setPopularityOrder( true );
+
+            List<LinkValidationItem> items = new ArrayList<>();
+            items.add( new LinkValidationItem( new File( "page0.html" ), server.url( "/ok/a.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page0.html" ), server.url( "/ok/b.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page1.html" ), server.url( "/ok/b.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page1.html" ), server.url( "/ok/c.html" ) ) );
+            // a page referencing a link twice counts once
+            items.add( new LinkValidationItem( new File( "page1.html" ), server.url( "/ok/a.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page1.html" ), server.url( "/ok/a.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page2.html" ), server.url( "/ok/c.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page3.html" ), server.url( "/ok/c.html" ) ) );
+            items.add( new LinkValidationItem( new File( "page3.html" ), server.url( "/ok/d.html" ) ) );
+
+            lvm.validateLinks( items, 1 );
+
+            assertEquals( Arrays.asList( "/ok/c.html", "/ok/a.html", "/ok/b.html", "/ok/d.html" ),
+                          server.getRequestedPaths() );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testValidateLinksErrorBudget() throws Exception
+    {
+        StubHttpServer server = new StubHttpServer();
+        try
+        {
+            LinkValidatorManager lvm = new LinkValidatorManager();
+            lvm.addLinkValidator( new OnlineHTTPLinkValidator( new HttpBean() ) );
+            lvm.setErrorBudget( 2, new int[] { 410 } );
+
+            List<LinkValidationItem> items = new ArrayList<>();
+            items.add( new LinkValidationItem( new File( "index.html" ), server.url( "/status/410/gone.html" ) ) );
+            for ( int i = 0; i < 10; i++ )
+            {
+                items.add( new LinkValidationItem( new File( "index.html" ),
+                                                   server.url( "/status/404/" + i + ".html" ) ) );
+            }
+
+            lvm.validateLinks( items, 1 );
+
+            // the ignored error and three broken links
+            assertEquals( 4, server.getRequestCount() );
+            assertEquals( "more than 2 broken link(s) found", lvm.getAbortReason() );
+
+            // the remaining links are not validated anymore
+            LinkValidationResult result = lvm.validateLink( items.get( 10 ) );
+            assertEquals( LinkcheckFileResult.NOT_CHECKED_LEVEL, result.getStatus() );
+            assertEquals( OnlineHTTPLinkValidator.NOT_CHECKED_AFTER_ABORT, result.getErrorMessage() );
+            assertEquals( 4, server.getRequestCount() );
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+
+    public void testValidationStatistics() throws Exception
+    {
+        LinkValidatorManager lvm = newManager();
+        lvm.setExcludedLinks( new String[] { "http://excluded.example.org/*" } );
+
+        File page = new File( "index.html" );
+        lvm.validateLink( new LinkValidationItem( page, "http://example.org/" ) );
+        lvm.validateLink( new LinkValidationItem( page, "http://example.org/" ) );
+        lvm.validateLink( new LinkValidationItem( page, "http://excluded.example.org/a.html" ) );
+
+        ValidationStatistics statistics = lvm.getValidationStatistics();
+        assertEquals( 1, statistics.getCacheHits() );
+        assertEquals( 1, statistics.getCacheMisses() );
+        assertEquals( 1, statistics.getExcludedLinks() );
+        assertEquals( 33, statistics.getCacheHitRatio() );
+
+        ValidatorMetrics metrics = statistics.getValidatorMetrics().get( "OfflineHTTPLinkValidator" );
+        assertEquals( 1, metrics.getValidations() );
+        assertTrue( metrics.getMaxTime() <= metrics.getTotalTime() );
+    }
+
+    public void testTransientResultsBounded() throws Exception
+    {
+        LinkValidatorManager lvm = newManager();
+        lvm.setMaxRemoteResults( 2 );
+        File page = new File( "index.html" );
+
+        lvm.setCachedResult( "http://example.org/kept",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK" ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            lvm.validateLink( new LinkValidationItem( page, "http://example.org/" + i ) );
+        }
+
+        // the offline results are not persistent, the oldest one is evicted but not the stored result
+        assertNull( lvm.getCachedResult( new LinkValidationItem( page, "http://example.org/0" ) ) );
+        assertNotNull( lvm.getCachedResult( new LinkValidationItem( page, "http://example.org/2" ) ) );
+        assertNotNull( lvm.getCachedResult( new LinkValidationItem( page, "http://example.org/kept" ) ) );
+        assertEquals( 1, lvm.getValidationStatistics().getEvictions() );
+
+        // a result which is not persistent anymore replaces the stored one
+        lvm.setCachedResult( "http://example.org/kept",
+                             new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, false, "timeout" ) );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL,
+                      lvm.getCachedResult( new LinkValidationItem( page, "http://example.org/kept" ) ).getStatus() );
+    }
+
+    public void testCacheLoadedInBackground() throws Exception
+    {
+        File cacheFile = File.createTempFile( "linkcheck", ".cache" );
+        cacheFile.deleteOnExit();
+        new File( cacheFile.getPath() + ".lock" ).deleteOnExit();
+
+        LinkValidatorManager lvm = newManager();
+        lvm.setCachedResult( "http://example.org/",
+                             new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK" ) );
+        lvm.saveCache( cacheFile );
+
+        // the lookups wait for the loading
+        lvm = newManager();
+        lvm.loadCacheInBackground( cacheFile );
+        LinkValidationItem lvi = new LinkValidationItem( new File( "index.html" ), "http://example.org/" );
+        assertEquals( 200, ( (HTTPLinkValidationResult) lvm.getCachedResult( lvi ) ).getHttpStatusCode() );
+
+        lvm = newManager();
+        lvm.loadCacheInBackground( cacheFile );
+        lvm.awaitCacheLoaded();
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, lvm.validateLink( lvi ).getStatus() );
+        assertEquals( 1, lvm.getValidationStatistics().getCacheHits() );
+
+        // nothing to wait for anymore
+        lvm.awaitCacheLoaded();
+        lvm.loadCacheInBackground( null );
+        lvm.awaitCacheLoaded();
+    }
+
+    private static LinkValidatorManager newManager()
+    {
+        LinkValidatorManager lvm = new LinkValidatorManager();
+        lvm.addLinkValidator( new OfflineHTTPLinkValidator() );
+        return lvm;
+    }
 }
@@ -0,0 +1,195 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+
+/**
+ * Tests the off-heap index of the results.
+ */
+public class MappedResultMapTest
+    extends TestCase
+{
+    private File file;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        this.file = File.createTempFile( "linkcheck", ".index" );
+        this.file.deleteOnExit();
+        this.file.delete();
+    }
+
+    public void testRoundTrip()
+        throws Exception
+    {
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            assertNull( map.put( "http://example.org/",
+                                 new HTTPLinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, 200, "OK",
+                                                               "\"abc\"", null, null, 42 ) ) );
+            map.put( "file:index.html", new LinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, false, null, 7 ) );
+            map.put( "http://example.org/gone", new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, "" ) );
+            assertNotNull( map.remove( "http://example.org/gone" ) );
+            map.setLog( 123, 4 );
+        }
+
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            assertEquals( 123, map.getLogLength() );
+            assertEquals( 4, map.getLogRecords() );
+            assertEquals( 2, map.size() );
+            assertNull( map.get( "http://example.org/gone" ) );
+
+            HTTPLinkValidationResult http = (HTTPLinkValidationResult) map.get( "http://example.org/" );
+            assertEquals( 200, http.getHttpStatusCode() );
+            assertEquals( "\"abc\"", http.getEtag() );
+            assertNull( http.getLastModified() );
+            assertEquals( 42, http.getTimestamp() );
+            assertTrue( http.isPersistent() );
+
+            LinkValidationResult plain = map.get( "file:index.html" );
+            assertEquals( LinkcheckFileResult.WARNING_LEVEL, plain.getStatus() );
+            assertFalse( plain.isPersistent() );
+            assertNull( plain.getMessage() );
+
+            // a modified index does not reflect the cache file anymore
+            map.put( "http://example.org/", new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "" ) );
+            assertEquals( -1, map.getLogLength() );
+            assertFalse( map.get( "http://example.org/" ) instanceof HTTPLinkValidationResult );
+        }
+    }
+
+    public void testGrowth()
+        throws Exception
+    {
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            for ( int i = 0; i < 5000; i++ )
+            {
+                map.put( "http://example.org/" + i,
+                         new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true, "page " + i, i ) );
+                if ( i % 3 == 0 )
+                {
+                    map.remove( "http://example.org/" + i );
+                }
+            }
+        }
+
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            assertEquals( 5000 - 1667, map.size() );
+            for ( int i = 0; i < 5000; i++ )
+            {
+                LinkValidationResult result = map.get( "http://example.org/" + i );
+                if ( i % 3 == 0 )
+                {
+                    assertNull( result );
+                }
+                else
+                {
+                    assertEquals( "page " + i, result.getMessage() );
+                    assertEquals( i, result.getTimestamp() );
+                }
+            }
+
+            Set<String> keys = new HashSet<>();
+            for ( Map.Entry<String, LinkValidationResult> entry : map.entrySet() )
+            {
+                keys.add( entry.getKey() );
+            }
+            assertEquals( map.size(), keys.size() );
+
+            map.clear();
+            assertTrue( map.isEmpty() );
+            assertNull( map.get( "http://example.org/1" ) );
+        }
+    }
+
+    public void testReplaced()
+        throws Exception
+    {
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                map.put( "http://example.org/" + i, new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, true,
+                                                                              "page " + i, i ) );
+            }
+            long length = this.file.length();
+
+            // the same results over and over are written in place
+            for ( int n = 0; n < 1000; n++ )
+            {
+                for ( int i = 0; i < 100; i++ )
+                {
+                    map.put( "http://example.org/" + i,
+                             new LinkValidationResult( LinkcheckFileResult.WARNING_LEVEL, true, "" + n, n ) );
+                }
+            }
+            assertEquals( length, this.file.length() );
+            assertEquals( "999", map.get( "http://example.org/7" ).getMessage() );
+
+            // larger results leave outdated records, dropped instead of growing the file for ever
+            StringBuilder message = new StringBuilder();
+            for ( int n = 0; n < 1000; n++ )
+            {
+                message.append( 'x' );
+                for ( int i = 0; i < 100; i++ )
+                {
+                    map.put( "http://example.org/" + i,
+                             new LinkValidationResult( LinkcheckFileResult.ERROR_LEVEL, true, message.toString() ) );
+                }
+            }
+            assertEquals( 100, map.size() );
+            assertEquals( message.toString(), map.get( "http://example.org/42" ).getMessage() );
+            assertTrue( this.file.length() < 64 * 100 * 1000 );
+        }
+
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            assertEquals( 100, map.size() );
+            assertEquals( LinkcheckFileResult.ERROR_LEVEL, map.get( "http://example.org/99" ).getStatus() );
+        }
+    }
+
+    public void testExclusive()
+        throws Exception
+    {
+        try ( MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file ) )
+        {
+            assertNull( MappedResultMap.open( this.file ) );
+        }
+
+        MappedResultMap<String, LinkValidationResult> map = MappedResultMap.open( this.file );
+        assertNotNull( map );
+        map.close();
+    }
+}
@@ -0,0 +1,365 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Properties;
+
+import org.apache.maven.doxia.linkcheck.HttpBean;
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the online validation against an embedded HTTP server.
+ */
+public class OnlineHTTPLinkValidatorTest
+    extends TestCase
+{
+    private StubHttpServer server;
+
+    private HttpBean http;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+
+        server = new StubHttpServer();
+        http = new HttpBean();
+        http.setTimeout( 1000 );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        server.stop();
+
+        super.tearDown();
+    }
+
+    public void testStatus()
+    {
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, checkLink( hlv, "/ok/index.html" ).getStatus() );
+
+        LinkValidationResult result = checkLink( hlv, "/status/404/missing.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+        assertEquals( 404, ( (HTTPLinkValidationResult) result ).getHttpStatusCode() );
+        assertTrue( result.isPersistent() );
+
+        // temporary conditions are reported, but not remembered
+        result = checkLink( hlv, "/status/429/busy.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+        assertFalse( result.isPersistent() );
+
+        result = checkLink( hlv, "/status/503/down.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+        assertFalse( result.isPersistent() );
+    }
+
+    public void testRedirects()
+    {
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/redirect/3/index.html" );
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, result.getStatus() );
+        assertEquals( 302, ( (HTTPLinkValidationResult) result ).getHttpStatusCode() );
+        assertEquals( 4, server.getRequestCount() );
+
+        result = checkLink( hlv, "/moved/index.html" );
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, result.getStatus() );
+        assertEquals( 301, ( (HTTPLinkValidationResult) result ).getHttpStatusCode() );
+
+        // the hops are known, and the final page has been checked already
+        int requests = server.getRequestCount();
+        assertEquals( LinkcheckFileResult.WARNING_LEVEL, checkLink( hlv, "/redirect/2/index.html" ).getStatus() );
+        assertEquals( requests, server.getRequestCount() );
+    }
+
+    public void testHeadRejected()
+    {
+        server.setHeadRejected( true );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        // the answer to HEAD is reported as is, the link is not requested again with GET
+        LinkValidationResult result = checkLink( hlv, "/ok/index.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+        assertEquals( 405, ( (HTTPLinkValidationResult) result ).getHttpStatusCode() );
+        assertEquals( 1, server.getHeadRequestCount() );
+        assertEquals( 1, server.getRequestCount() );
+    }
+
+    public void testAnchorsInLargeBody()
+    {
+        http.setMethod( "get" );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/large/page.html#end" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+
+        result = checkLink( hlv, "/large/page.html#section-10" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+
+        result = checkLink( hlv, "/large/page.html#nowhere" );
+        assertTrue( result.getErrorMessage().endsWith( "Missing anchor 'nowhere'" ) );
+        assertFalse( result.isPersistent() );
+    }
+
+    public void testFullStrategyByDefault()
+    {
+        http.setMethod( "get" );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/large/page.html" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertEquals( 0, server.getRangeRequestCount() );
+        assertEquals( 1, hlv.getConnectionsOpened() );
+
+        // the whole body was read, so that the connection is reused
+        checkLink( hlv, "/ok/index.html" );
+        assertEquals( 1, hlv.getConnectionsOpened() );
+        assertEquals( 1, hlv.getConnectionsReused() );
+    }
+
+    public void testRangeRequests()
+    {
+        http.setMethod( "get" );
+        http.setGetStrategy( "range" );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/large/page.html" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertEquals( 200, ( (HTTPLinkValidationResult) result ).getHttpStatusCode() );
+        assertEquals( 1, server.getRangeRequestCount() );
+
+        HostMetrics metrics = hlv.getHostMetrics().get( server.getAuthority() );
+        assertEquals( Long.valueOf( 1 ), metrics.getStatusCounts().get( 206 ) );
+        assertEquals( 1, metrics.getBytesRead() );
+
+        // the whole page is needed to check an anchor
+        result = checkLink( hlv, "/large/page.html#end" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+        assertEquals( 1, server.getRangeRequestCount() );
+
+        // the large body is not read when the server ignores the range
+        server.setRangeSupported( false );
+        long bytesRead = metrics.getBytesRead();
+        result = checkLink( hlv, "/large/other.html" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertEquals( bytesRead, metrics.getBytesRead() );
+    }
+
+    public void testHeadersStrategy()
+    {
+        http.setMethod( "get" );
+        http.setGetStrategy( "headers" );
+        server.setLargeBodySize( 4 * 1024 * 1024 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/large/page.html" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertEquals( 0, server.getRangeRequestCount() );
+
+        result = checkLink( hlv, "/status/404/missing.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+
+        assertEquals( 0, hlv.getHostMetrics().get( server.getAuthority() ).getBytesRead() );
+    }
+
+    public void testMaxBodySize()
+    {
+        http.setMethod( "get" );
+        http.setMaxBodySize( 32 * 1024 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/large/page.html#section-1" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+
+        // the anchor may be further in the page
+        result = checkLink( hlv, "/large/page.html#end" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertFalse( result.isPersistent() );
+        assertTrue( result.getErrorMessage().endsWith( "not found in the first 32768 bytes" ) );
+
+        assertTrue( hlv.getHostMetrics().get( server.getAuthority() ).getBytesRead() <= 2 * 32 * 1024 );
+    }
+
+    public void testUnlimitedBodySize()
+    {
+        http.setMethod( "get" );
+        http.setMaxBodySize( 0 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        // the whole page is read
+        LinkValidationResult result = checkLink( hlv, "/large/page.html#end" );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+
+        result = checkLink( hlv, "/large/page.html#nowhere" );
+        assertTrue( result.getErrorMessage().endsWith( "Missing anchor 'nowhere'" ) );
+    }
+
+    public void testHttpClientParameters()
+    {
+        Properties parameters = new Properties();
+        parameters.setProperty( "http.socket.timeout", "5000" );
+        parameters.setProperty( "http.protocol.single-cookie-header", "true" );
+        // expecting a Map and an HttpVersion: skipped rather than failing every request
+        parameters.setProperty( "http.connection-manager.max-per-host", "5" );
+        parameters.setProperty( "http.protocol.version", "HTTP/1.0" );
+        parameters.setProperty( "http.socket.sendbuffer", "not a number" );
+        http.setHttpClientParameters( parameters );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, checkLink( hlv, "/ok/index.html" ).getStatus() );
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, checkLink( hlv, "/ok/other.html" ).getStatus() );
+    }
+
+    public void testTimeout()
+    {
+        http.setTimeout( 200 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        LinkValidationResult result = checkLink( hlv, "/slow/1000/index.html" );
+        assertEquals( LinkcheckFileResult.ERROR_LEVEL, result.getStatus() );
+        assertTrue( result.isPersistent() );
+        assertEquals( 1, hlv.getHostMetrics().get( server.getAuthority() ).getTimeouts() );
+    }
+
+    public void testDeadline()
+    {
+        http.setTimeout( 5000 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+        hlv.setDeadline( System.currentTimeMillis() + 300 );
+
+        assertEquals( LinkcheckFileResult.VALID_LEVEL, checkLink( hlv, "/ok/index.html" ).getStatus() );
+
+        // the request in flight is aborted at the deadline
+        long start = System.currentTimeMillis();
+        LinkValidationResult result = checkLink( hlv, "/slow/3000/index.html" );
+        assertTrue( System.currentTimeMillis() - start < 2000 );
+        assertEquals( LinkcheckFileResult.NOT_CHECKED_LEVEL, result.getStatus() );
+        assertEquals( OnlineHTTPLinkValidator.NOT_CHECKED_WITHIN_BUDGET, result.getErrorMessage() );
+        assertFalse( result.isPersistent() );
+
+        // and the next links are not requested anymore
+        int requests = server.getRequestCount();
+        result = checkLink( hlv, "/ok/other.html" );
+        assertEquals( LinkcheckFileResult.NOT_CHECKED_LEVEL, result.getStatus() );
+        assertEquals( requests, server.getRequestCount() );
+
+        hlv.setDeadline( -1 );
+        result = checkLink( hlv, "/ok/other.html" );
+        assertEquals( result.toString(), LinkcheckFileResult.VALID_LEVEL, result.getStatus() );
+    }
+
+    public void testConnectionReuse()
+    {
+        server.setLatency( 5 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( LinkcheckFileResult.VALID_LEVEL, checkLink( hlv, "/ok/" + i + ".html" ).getStatus() );
+        }
+
+        assertEquals( 1, hlv.getConnectionsOpened() );
+        assertEquals( 9, hlv.getConnectionsReused() );
+    }
+
+    public void testConnectionPool()
+        throws Exception
+    {
+        http.setTimeout( 5000 );
+        http.setMaxConnectionsPerHost( 1 );
+        final OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        Thread[] threads = new Thread[3];
+        for ( int i = 0; i < threads.length; i++ )
+        {
+            final String path = "/slow/200/" + i + ".html";
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    checkLink( hlv, path );
+                }
+            };
+            threads[i].start();
+        }
+        for ( Thread thread : threads )
+        {
+            thread.join();
+        }
+
+        ConnectionPoolStatistics stats = hlv.getConnectionPoolStatistics();
+        assertEquals( 1, stats.getPeakLeasedConnections() );
+        assertEquals( 0, stats.getLeasedConnections() );
+        assertEquals( 3, stats.getConnectionsOpened() + stats.getConnectionsReused() );
+        // the requests queued behind the first one waited for it, then for the second one
+        assertTrue( stats.getTotalWaitTime() >= 500 );
+    }
+
+    public void testHostMetrics()
+    {
+        http.setMethod( "get" );
+        http.setGetStrategy( "full" );
+        server.setLargeBodySize( 64 * 1024 );
+        OnlineHTTPLinkValidator hlv = new OnlineHTTPLinkValidator( http );
+
+        checkLink( hlv, "/ok/index.html" );
+        checkLink( hlv, "/redirect/1/index.html" );
+        checkLink( hlv, "/status/404/missing.html" );
+        checkLink( hlv, "/large/page.html#end" );
+
+        HostMetrics metrics = hlv.getHostMetrics().get( server.getAuthority() );
+        assertNotNull( metrics );
+        // the redirect target was requested directly before, which is not remembered for the redirect
+        assertEquals( 5, metrics.getRequests() );
+        assertEquals( 1, metrics.getRedirects() );
+        assertEquals( Long.valueOf( 3 ), metrics.getStatusCounts().get( 200 ) );
+        assertEquals( Long.valueOf( 1 ), metrics.getStatusCounts().get( 302 ) );
+        assertEquals( Long.valueOf( 1 ), metrics.getStatusCounts().get( 404 ) );
+        assertTrue( metrics.getBytesRead() > 64 * 1024 );
+        assertEquals( 0, metrics.getTimeouts() );
+
+        long total = 0;
+        for ( long count : metrics.getLatencyHistogram() )
+        {
+            total += count;
+        }
+        assertEquals( 5, total );
+        assertTrue( metrics.getLatencyPercentile( 99 ) <= metrics.getMaxLatency() );
+    }
+
+    private LinkValidationResult checkLink( LinkValidator hlv, String path )
+    {
+        return hlv.validateLink( new LinkValidationItem( new File( "index.html" ), server.url( path ) ) );
+    }
+}
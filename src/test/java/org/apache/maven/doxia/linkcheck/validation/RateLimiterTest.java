@@ -0,0 +1,97 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the token bucket rate limits.
+ */
+public class RateLimiterTest
+    extends TestCase
+{
+    public void testUnlimited()
+    {
+        RateLimiter limiter = new RateLimiter( 0, null );
+
+        assertFalse( limiter.isLimited() );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertEquals( 0, limiter.tryAcquire( "example.org" ) );
+        }
+    }
+
+    public void testGlobalBurst()
+    {
+        RateLimiter limiter = new RateLimiter( 10, null );
+
+        // a second worth of requests is allowed at once
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( 0, limiter.tryAcquire( "host" + i + ".example.org" ) );
+        }
+
+        long wait = limiter.tryAcquire( "other.example.org" );
+        assertTrue( wait > 0 );
+        assertTrue( wait <= 100 );
+    }
+
+    public void testHostPatterns()
+    {
+        Map<String, Double> rates = new HashMap<>();
+        rates.put( "*.Example.org", 1d );
+        rates.put( "api.github.com", 2d );
+        RateLimiter limiter = new RateLimiter( 0, rates );
+
+        assertEquals( 0, limiter.tryAcquire( "www.example.org" ) );
+        assertTrue( limiter.tryAcquire( "www.example.org" ) > 0 );
+        // each host matching a pattern has its own bucket
+        assertEquals( 0, limiter.tryAcquire( "example.org" ) );
+
+        assertEquals( 0, limiter.tryAcquire( "api.github.com" ) );
+        assertEquals( 0, limiter.tryAcquire( "API.github.com" ) );
+        assertTrue( limiter.tryAcquire( "api.github.com" ) > 0 );
+
+        assertEquals( 0, limiter.tryAcquire( "maven.apache.org" ) );
+        assertEquals( 0, limiter.tryAcquire( "maven.apache.org" ) );
+    }
+
+    public void testTryAgainLater()
+        throws Exception
+    {
+        RateLimiter limiter = new RateLimiter( 20, null );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            assertEquals( 0, limiter.tryAcquire( "example.org" ) );
+        }
+
+        // the next token is 50 ms away, and not taken while waiting
+        long wait = limiter.tryAcquire( "example.org" );
+        assertTrue( wait > 0 );
+        assertTrue( wait <= 50 );
+        Thread.sleep( wait );
+        assertEquals( 0, limiter.tryAcquire( "example.org" ) );
+        assertTrue( limiter.tryAcquire( "example.org" ) > 0 );
+    }
+}
@@ -0,0 +1,81 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+
+import org.apache.maven.doxia.linkcheck.model.LinkcheckFileResult;
+
+/**
+ * Tests the bounded cache of the results which are not stored in the cache file.
+ */
+public class ResultLruCacheTest
+    extends TestCase
+{
+    private static final LinkValidationResult VALID =
+        new LinkValidationResult( LinkcheckFileResult.VALID_LEVEL, false, "" );
+
+    public void testLeastRecentlyUsedEvicted()
+    {
+        ResultLruCache cache = new ResultLruCache( 3 );
+        cache.put( "a", VALID );
+        cache.put( "b", VALID );
+        cache.put( "c", VALID );
+
+        // a is used again, so b is the least recently used
+        assertSame( VALID, cache.get( "a" ) );
+        cache.put( "d", VALID );
+
+        assertEquals( 3, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        assertNull( cache.get( "b" ) );
+        assertNotNull( cache.get( "a" ) );
+        assertNotNull( cache.get( "c" ) );
+        assertNotNull( cache.get( "d" ) );
+
+        assertSame( VALID, cache.remove( "a" ) );
+        assertNull( cache.get( "a" ) );
+        cache.clear();
+        assertEquals( 0, cache.size() );
+    }
+
+    public void testBounds()
+    {
+        ResultLruCache cache = new ResultLruCache( 1000 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            cache.put( "/site/page" + i + ".html", VALID );
+        }
+        assertTrue( cache.size() <= 1000 );
+        assertEquals( 10000 - cache.size(), cache.getEvictions() );
+
+        ResultLruCache unbounded = new ResultLruCache( -1 );
+        for ( int i = 0; i < 10000; i++ )
+        {
+            unbounded.put( "/site/page" + i + ".html", VALID );
+        }
+        assertEquals( 10000, unbounded.size() );
+        assertEquals( 0, unbounded.getEvictions() );
+
+        ResultLruCache disabled = new ResultLruCache( 0 );
+        disabled.put( "a", VALID );
+        assertNull( disabled.get( "a" ) );
+    }
+}
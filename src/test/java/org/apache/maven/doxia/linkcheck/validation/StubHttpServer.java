@@ -0,0 +1,396 @@
+package org.apache.maven.doxia.linkcheck.validation;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server simulating the behaviours of remote sites, to test the online validation
+ * without network. The response depends on the path of the request:
+ * <dl>
+ * <dt><code>/ok/...</code></dt><dd>200 with a small page holding the anchor <code>top</code>.</dd>
+ * <dt><code>/status/{code}/...</code></dt><dd>the given status, e.g. 404, 429 or 503.</dd>
+ * <dt><code>/redirect/{n}/...</code></dt><dd>a chain of <code>n</code> temporary redirects ending on
+ * <code>/ok/...</code>.</dd>
+ * <dt><code>/moved/...</code></dt><dd>a permanent redirect to <code>/ok/...</code>.</dd>
+ * <dt><code>/slow/{millis}/...</code></dt><dd>200 after the given delay.</dd>
+ * <dt><code>/large/...</code></dt><dd>200 with a large page, holding the anchors <code>section-{i}</code>
+ * every 16 KB and <code>end</code> at its very end.</dd>
+ * </dl>
+ * Any other path gets a 404. A latency can be added to every response, and HEAD requests can be rejected.
+ * The successful responses honour a <code>Range</code> header of the form <code>bytes={first}-{last}</code>,
+ * unless ranges are disabled.
+ */
+public class StubHttpServer
+{
+    /** The distance between two anchors of the large page. */
+    private static final int SECTION_SIZE = 16 * 1024;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private volatile long latency;
+
+    private volatile boolean headRejected;
+
+    private volatile int largeBodySize = 512 * 1024;
+
+    private volatile boolean rangeSupported = true;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger headRequests = new AtomicInteger();
+
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+
+    private final List<String> paths = Collections.synchronizedList( new ArrayList<String>() );
+
+    private final List<Long> serviceTimes = Collections.synchronizedList( new ArrayList<Long>() );
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     *
+     * @throws IOException if the server cannot be started.
+     */
+    public StubHttpServer()
+        throws IOException
+    {
+        server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 0 );
+        server.createContext( "/", new HttpHandler()
+        {
+            @Override
+            public void handle( HttpExchange exchange )
+                throws IOException
+            {
+                long start = System.nanoTime();
+                try
+                {
+                    respond( exchange );
+                }
+                finally
+                {
+                    exchange.close();
+                    serviceTimes.add( System.nanoTime() - start );
+                }
+            }
+        } );
+        executor = Executors.newCachedThreadPool( new ThreadFactory()
+        {
+            @Override
+            public Thread newThread( Runnable r )
+            {
+                Thread t = new Thread( r, "stub-http-server" );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+        server.setExecutor( executor );
+        server.start();
+    }
+
+    /**
+     * @param path an absolute path, e.g. <code>/ok/index.html</code>.
+     * @return the URL of the path on this server.
+     */
+    public String url( String path )
+    {
+        return "http://" + getAuthority() + path;
+    }
+
+    /**
+     * @return the host and port of this server.
+     */
+    public String getAuthority()
+    {
+        return "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @param millis the latency added to every response.
+     */
+    public void setLatency( long millis )
+    {
+        this.latency = millis;
+    }
+
+    /**
+     * @param rejected <code>true</code> to answer HEAD requests with 405.
+     */
+    public void setHeadRejected( boolean rejected )
+    {
+        this.headRejected = rejected;
+    }
+
+    /**
+     * @param size the size in bytes of the large page.
+     */
+    public void setLargeBodySize( int size )
+    {
+        this.largeBodySize = size;
+    }
+
+    /**
+     * @param supported <code>false</code> to ignore the <code>Range</code> headers.
+     */
+    public void setRangeSupported( boolean supported )
+    {
+        this.rangeSupported = supported;
+    }
+
+    /**
+     * @return the number of requests received.
+     */
+    public int getRequestCount()
+    {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of HEAD requests received.
+     */
+    public int getHeadRequestCount()
+    {
+        return headRequests.get();
+    }
+
+    /**
+     * @return the number of requests received with a <code>Range</code> header.
+     */
+    public int getRangeRequestCount()
+    {
+        return rangeRequests.get();
+    }
+
+    /**
+     * @return the paths of the requests received, in order.
+     */
+    public List<String> getRequestedPaths()
+    {
+        synchronized ( paths )
+        {
+            return new ArrayList<>( paths );
+        }
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100.
+     * @return the given percentile of the time spent answering a request, in milliseconds.
+     */
+    public double getServiceTimePercentile( double percentile )
+    {
+        List<Long> times;
+        synchronized ( serviceTimes )
+        {
+            times = new ArrayList<>( serviceTimes );
+        }
+        if ( times.isEmpty() )
+        {
+            return 0;
+        }
+        Collections.sort( times );
+
+        int index = (int) Math.ceil( percentile / 100 * times.size() ) - 1;
+
+        return times.get( Math.max( 0, Math.min( index, times.size() - 1 ) ) ) / 1000000.0;
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop()
+    {
+        server.stop( 0 );
+        executor.shutdownNow();
+        try
+        {
+            executor.awaitTermination( 5, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond( HttpExchange exchange )
+        throws IOException
+    {
+        requests.incrementAndGet();
+        paths.add( exchange.getRequestURI().getPath() );
+        boolean head = "HEAD".equals( exchange.getRequestMethod() );
+        if ( head )
+        {
+            headRequests.incrementAndGet();
+        }
+        if ( exchange.getRequestHeaders().containsKey( "Range" ) )
+        {
+            rangeRequests.incrementAndGet();
+        }
+
+        try ( InputStream in = exchange.getRequestBody() )
+        {
+            while ( in.read() != -1 )
+            {
+                // drain the request to keep the connection reusable
+            }
+        }
+
+        sleep( latency );
+
+        String path = exchange.getRequestURI().getPath();
+        String[] segments = path.split( "/", 4 );
+        String kind = ( segments.length > 1 ) ? segments[1] : "";
+
+        if ( head && headRejected )
+        {
+            send( exchange, 405, null, true );
+        }
+        else if ( "ok".equals( kind ) )
+        {
+            send( exchange, 200, "<html><body><a name=\"top\">" + path + "</a></body></html>", head );
+        }
+        else if ( "status".equals( kind ) && segments.length > 2 )
+        {
+            int code = Integer.parseInt( segments[2] );
+            if ( code == 429 || code == 503 )
+            {
+                exchange.getResponseHeaders().set( "Retry-After", "1" );
+            }
+            send( exchange, code, "<html><body>" + code + "</body></html>", head );
+        }
+        else if ( "redirect".equals( kind ) && segments.length > 2 )
+        {
+            int hops = Integer.parseInt( segments[2] );
+            String rest = ( segments.length > 3 ) ? segments[3] : "";
+            exchange.getResponseHeaders().set( "Location",
+                                               ( hops > 1 ) ? "/redirect/" + ( hops - 1 ) + "/" + rest : "/ok/" + rest );
+            send( exchange, 302, null, true );
+        }
+        else if ( "moved".equals( kind ) )
+        {
+            exchange.getResponseHeaders().set( "Location", url( "/ok/" + path.substring( "/moved/".length() ) ) );
+            send( exchange, 301, null, true );
+        }
+        else if ( "slow".equals( kind ) && segments.length > 2 )
+        {
+            sleep( Long.parseLong( segments[2] ) );
+            send( exchange, 200, "<html><body>slow</body></html>", head );
+        }
+        else if ( "large".equals( kind ) )
+        {
+            send( exchange, 200, largeBody(), head );
+        }
+        else
+        {
+            send( exchange, 404, "<html><body>Not Found</body></html>", head );
+        }
+    }
+
+    private String largeBody()
+    {
+        StringBuilder sb = new StringBuilder( largeBodySize + 64 );
+        sb.append( "<html><body>" );
+        int section = 0;
+        while ( sb.length() < largeBodySize )
+        {
+            sb.append( "<h2><a name=\"section-" ).append( section++ ).append( "\">Section</a></h2><p>" );
+            int end = Math.min( largeBodySize, sb.length() + SECTION_SIZE );
+            while ( sb.length() < end )
+            {
+                sb.append( "lorem ipsum " );
+            }
+            sb.append( "</p>" );
+        }
+        sb.append( "<a id=\"end\">end</a></body></html>" );
+
+        return sb.toString();
+    }
+
+    private void send( HttpExchange exchange, int code, String body, boolean noBody )
+        throws IOException
+    {
+        byte[] bytes = ( body == null ) ? new byte[0] : body.getBytes( StandardCharsets.UTF_8 );
+        exchange.getResponseHeaders().set( "Content-Type", "text/html; charset=UTF-8" );
+
+        String range = exchange.getRequestHeaders().getFirst( "Range" );
+        if ( code == 200 && rangeSupported && range != null && range.startsWith( "bytes=" ) )
+        {
+            String[] bounds = range.substring( "bytes=".length() ).split( "-" );
+            int first = Integer.parseInt( bounds[0] );
+            int last = Math.min( Integer.parseInt( bounds[1] ), bytes.length - 1 );
+            if ( first > last )
+            {
+                exchange.getResponseHeaders().set( "Content-Range", "bytes */" + bytes.length );
+                send( exchange, 416, null, true );
+                return;
+            }
+
+            exchange.getResponseHeaders().set( "Content-Range", "bytes " + first + "-" + last + "/" + bytes.length );
+            code = 206;
+            bytes = Arrays.copyOfRange( bytes, first, last + 1 );
+        }
+        if ( noBody )
+        {
+            exchange.sendResponseHeaders( code, -1 );
+            return;
+        }
+
+        exchange.sendResponseHeaders( code, bytes.length );
+        try ( OutputStream out = exchange.getResponseBody() )
+        {
+            out.write( bytes );
+        }
+    }
+
+    private static void sleep( long millis )
+    {
+        if ( millis <= 0 )
+        {
+            return;
+        }
+
+        try
+        {
+            Thread.sleep( millis );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}